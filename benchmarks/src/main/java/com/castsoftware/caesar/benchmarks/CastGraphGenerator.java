@@ -0,0 +1,289 @@
+package com.castsoftware.caesar.benchmarks;
+
+import org.neo4j.graphdb.*;
+
+import java.util.*;
+
+/**
+ * Seeded generator of graphs shaped like a CAST Imaging application :
+ * <pre>
+ * (:Level5)-[:Aggregates]->(:Object)-[:CALL]->(:Object)
+ * (:SubObject)-[:BELONGSTO]->(:Object)
+ * (:Transaction)-[:Contains]->(:Object)
+ * (:Transaction)-[:StartsWith]->(:TransactionNode)-[:IN]->(:Object or :SubObject)
+ * (:Transaction)-[:EndsWith]->(:TransactionNode)-[:OUT]->(:Object)
+ * </pre>
+ * Every node also carries the label of its application.
+ *
+ * The objects are split in functional areas, each aggregated by one level. A transaction draws most
+ * of its objects in one area, and the others in a pool of shared objects (utilities, tables) with a
+ * Zipf distribution, so a few shared objects are used by most transactions. The target application
+ * is a copy of the source application where a part of the transactions are modified, to measure the
+ * comparison of two versions of an application.
+ */
+public class CastGraphGenerator {
+
+	private static final int COMMIT_SIZE = 50000;
+	private static final int TRANSACTIONS_PER_AREA = 50;
+
+	private final long seed;
+	private final int numTransactions;
+
+	private int objectsPerTransaction = 20;
+	private double objectsPerTransactionRatio = 2.0;
+	private double sharedRatio = 0.2;
+	private double zipfExponent = 1.1;
+	private double subObjectRatio = 0.1;
+	private double tableRatio = 0.1;
+	private double modifiedRatio = 0.2;
+
+	/**
+	 * Average number of objects contained in a transaction
+	 */
+	public CastGraphGenerator withObjectsPerTransaction(int objectsPerTransaction) {
+		this.objectsPerTransaction = Math.max(1, objectsPerTransaction);
+		return this;
+	}
+
+	/**
+	 * Number of objects in the application, relative to the number of transactions
+	 */
+	public CastGraphGenerator withObjectsPerTransactionRatio(double ratio) {
+		this.objectsPerTransactionRatio = Math.max(0.1, ratio);
+		return this;
+	}
+
+	/**
+	 * Part of the objects of a transaction drawn in the shared pool (overlap between areas)
+	 */
+	public CastGraphGenerator withSharedRatio(double sharedRatio) {
+		this.sharedRatio = Math.min(1.0, Math.max(0.0, sharedRatio));
+		return this;
+	}
+
+	/**
+	 * Skew of the popularity of the shared objects. 0 for a uniform distribution.
+	 */
+	public CastGraphGenerator withZipfExponent(double zipfExponent) {
+		this.zipfExponent = Math.max(0.0, zipfExponent);
+		return this;
+	}
+
+	/**
+	 * Part of the transactions of the target application which differ from the source
+	 */
+	public CastGraphGenerator withModifiedRatio(double modifiedRatio) {
+		this.modifiedRatio = Math.min(1.0, Math.max(0.0, modifiedRatio));
+		return this;
+	}
+
+	/**
+	 * Generate the source application, and the target application which is a modified copy
+	 * @param db Database
+	 * @param source Name of the source application
+	 * @param target Name of the target application, or null to only generate the source
+	 * @param levelName Name of the level holding the first area, used by the divide procedure
+	 */
+	public void generate(GraphDatabaseService db, String source, String target, String levelName) {
+		Model model = buildModel(new Random(seed));
+		write(db, source, levelName, model, null);
+		if (target != null) write(db, target, levelName, model, new Random(seed + 1));
+	}
+
+	/** Application independent description of the graph */
+	private static class Model {
+		int numObjects;
+		int numAreas;
+		int numShared;
+		int[] objectArea;
+		List<int[]> transactionObjects = new ArrayList<>();
+		List<String> transactionNames;
+	}
+
+	private Model buildModel(Random random) {
+		Model model = new Model();
+		model.numObjects = Math.max(10, (int) (numTransactions * objectsPerTransactionRatio));
+		model.numAreas = Math.max(1, numTransactions / TRANSACTIONS_PER_AREA);
+		model.numShared = Math.max(1, model.numObjects / 20);
+
+		// The shared pool is the beginning of the object range, the remaining objects are split in areas
+		model.objectArea = new int[model.numObjects];
+		for (int o = 0; o < model.numObjects; o++) {
+			model.objectArea[o] = o < model.numShared ? -1 : (o - model.numShared) % model.numAreas;
+		}
+
+		double[] zipf = zipfCumulative(model.numShared);
+		int areaObjects = Math.max(1, (model.numObjects - model.numShared) / model.numAreas);
+		for (int t = 0; t < numTransactions; t++) {
+			int area = random.nextInt(model.numAreas);
+			int size = 1 + random.nextInt(2 * objectsPerTransaction - 1);
+			Set<Integer> objects = new LinkedHashSet<>();
+			for (int i = 0; i < size; i++) {
+				if (random.nextDouble() < sharedRatio) {
+					objects.add(drawZipf(zipf, random));
+				} else {
+					int o = model.numShared + random.nextInt(areaObjects) * model.numAreas + area;
+					objects.add(Math.min(model.numObjects - 1, o));
+				}
+			}
+			model.transactionObjects.add(objects.stream().mapToInt(Integer::intValue).toArray());
+		}
+
+		model.transactionNames = new SyntheticData(seed).transactionNames(numTransactions);
+		return model;
+	}
+
+	/**
+	 * Write one application
+	 * @param modifications Random used to modify the transactions, or null to write the model as is
+	 */
+	private void write(GraphDatabaseService db, String application, String levelName, Model model, Random modifications) {
+		Label app = Label.label(application);
+		Batch batch = new Batch(db);
+
+		// Levels, one per area, and one for the shared objects
+		// Nodes are kept by id, as they can't be used once their transaction is committed
+		long[] levelIds = new long[model.numAreas + 1];
+		String[] levelNames = new String[model.numAreas + 1];
+		for (int l = 0; l <= model.numAreas; l++) {
+			levelNames[l] = l == 0 ? levelName : (l == model.numAreas ? "Shared" : "Level_" + l);
+			Node level = batch.node(Label.label("Level5"), app);
+			level.setProperty("Name", levelNames[l]);
+			levelIds[l] = level.getId();
+		}
+
+		// Objects
+		Random random = new Random(seed + 2);
+		long[] objectIds = new long[model.numObjects];
+		long[] subObjectIds = new long[model.numObjects];
+		Arrays.fill(subObjectIds, -1);
+		for (int o = 0; o < model.numObjects; o++) {
+			int area = model.objectArea[o];
+			int level = area < 0 ? model.numAreas : area;
+			boolean table = area < 0 ? random.nextDouble() < tableRatio * 5 : random.nextDouble() < tableRatio / 5;
+
+			Node object = batch.node(Label.label("Object"), app);
+			object.setProperty("Name", "Object" + o);
+			object.setProperty("FullName", "com.company.application.area" + area + ".Object" + o);
+			object.setProperty("Type", table ? "Oracle Table" : (o % 7 == 0 ? "Java Class" : "Java Method"));
+			object.setProperty("Level", levelNames[level]);
+			objectIds[o] = object.getId();
+			batch.relationship(levelIds[level], objectIds[o], "Aggregates");
+
+			if (random.nextDouble() < subObjectRatio) {
+				Node sub = batch.node(Label.label("SubObject"), app);
+				sub.setProperty("Name", "SubObject" + o);
+				subObjectIds[o] = sub.getId();
+				batch.relationship(subObjectIds[o], objectIds[o], "BELONGSTO");
+			}
+		}
+
+		// Call graph : a few calls to objects of the same area or to shared objects
+		for (int o = 0; o < model.numObjects; o++) {
+			int calls = random.nextInt(3);
+			for (int c = 0; c < calls; c++) {
+				int callee = random.nextInt(4) == 0
+						? random.nextInt(model.numShared)
+						: Math.min(model.numObjects - 1, o + model.numAreas * (1 + random.nextInt(3)));
+				if (callee != o) batch.relationship(objectIds[o], objectIds[callee], "CALL");
+			}
+		}
+
+		// Transactions
+		for (int t = 0; t < numTransactions; t++) {
+			int[] objects = model.transactionObjects.get(t);
+			String name = model.transactionNames.get(t);
+
+			if (modifications != null && modifications.nextDouble() < modifiedRatio) {
+				objects = modify(objects, model.numObjects, modifications);
+				if (modifications.nextBoolean()) name = name + "V2";
+			}
+
+			Node transaction = batch.node(Label.label("Transaction"), app);
+			transaction.setProperty("Name", name);
+			transaction.setProperty("FullName", application + "." + name);
+			long transactionId = transaction.getId();
+			for (int o : objects) batch.relationship(transactionId, objectIds[o], "Contains");
+
+			int first = objects[0];
+			long start = batch.node(Label.label("TransactionNode"), app).getId();
+			batch.relationship(transactionId, start, "StartsWith");
+			batch.relationship(start, subObjectIds[first] >= 0 ? subObjectIds[first] : objectIds[first], "IN");
+
+			long end = batch.node(Label.label("TransactionNode"), app).getId();
+			batch.relationship(transactionId, end, "EndsWith");
+			batch.relationship(end, objectIds[objects[objects.length - 1]], "OUT");
+		}
+
+		batch.commit();
+	}
+
+	/** Replace some of the objects of a transaction */
+	private static int[] modify(int[] objects, int numObjects, Random random) {
+		int[] modified = Arrays.copyOf(objects, objects.length);
+		int changes = 1 + random.nextInt(Math.max(1, objects.length / 3));
+		for (int c = 0; c < changes; c++) modified[random.nextInt(modified.length)] = random.nextInt(numObjects);
+		return Arrays.stream(modified).distinct().toArray();
+	}
+
+	private double[] zipfCumulative(int size) {
+		double[] cumulative = new double[size];
+		double sum = 0;
+		for (int i = 0; i < size; i++) {
+			sum += 1.0 / Math.pow(i + 1, zipfExponent);
+			cumulative[i] = sum;
+		}
+		for (int i = 0; i < size; i++) cumulative[i] /= sum;
+		return cumulative;
+	}
+
+	private static int drawZipf(double[] cumulative, Random random) {
+		int index = Arrays.binarySearch(cumulative, random.nextDouble());
+		return Math.min(cumulative.length - 1, index >= 0 ? index : -index - 1);
+	}
+
+	/** Write the graph in transactions of {@value #COMMIT_SIZE} operations */
+	private static class Batch {
+		private final GraphDatabaseService db;
+		private Transaction tx;
+		private int operations = 0;
+
+		private Node node(Label... labels) {
+			tick();
+			return tx.createNode(labels);
+		}
+
+		private void relationship(long from, long to, String type) {
+			tick();
+			tx.getNodeById(from).createRelationshipTo(tx.getNodeById(to), RelationshipType.withName(type));
+		}
+
+		private void tick() {
+			if (++operations % COMMIT_SIZE == 0) {
+				tx.commit();
+				tx.close();
+				tx = db.beginTx();
+			}
+		}
+
+		private void commit() {
+			tx.commit();
+			tx.close();
+		}
+
+		private Batch(GraphDatabaseService db) {
+			this.db = db;
+			this.tx = db.beginTx();
+		}
+	}
+
+	/**
+	 * Constructor
+	 * @param seed Seed of the generator
+	 * @param numTransactions Number of transactions per application
+	 */
+	public CastGraphGenerator(long seed, int numTransactions) {
+		this.seed = seed;
+		this.numTransactions = numTransactions;
+	}
+}
@@ -0,0 +1,52 @@
+package com.castsoftware.caesar.benchmarks;
+
+import com.castsoftware.caesar.entities.transactions.Transaction;
+import com.castsoftware.caesar.services.textProcessing.Lemmatizers;
+import com.castsoftware.caesar.services.transaction.TransactionClassifyService;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Classification of the transaction names : dictionary matching and lemmatization.
+ * Each operation processes the whole batch of names.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class ClassificationBenchmark {
+
+	@Param({"10000"})
+	public int size;
+
+	@Param({"42"})
+	public long seed;
+
+	private TransactionClassifyService service;
+	private List<Transaction> transactions;
+	private List<String> names;
+
+	@Setup
+	public void setUp() {
+		service = new TransactionClassifyService(Lemmatizers.get(Lemmatizers.Mode.RULE_BASED));
+		transactions = new SyntheticData(seed).transactions(size);
+		names = new SyntheticData(seed).transactionNames(size);
+	}
+
+	@Benchmark
+	public void classifyTransaction(Blackhole blackhole) {
+		for (Transaction tn : transactions) blackhole.consume(service.classifyTransaction(tn));
+	}
+
+	@Benchmark
+	public void findLongestWord(Blackhole blackhole) {
+		for (String name : names) {
+			for (int i = 0; i < name.length(); i++) blackhole.consume(service.findLongestWordLength(name, i));
+		}
+	}
+}
@@ -0,0 +1,62 @@
+package com.castsoftware.caesar.benchmarks;
+
+import com.castsoftware.caesar.entities.transactions.ClusterTransaction;
+import com.castsoftware.caesar.entities.transactions.ClusterTree;
+import com.castsoftware.caesar.entities.transactions.Transaction;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Construction and flattening of the tree of categories built by the classification.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class ClusterTreeBenchmark {
+
+	@Param({"10000"})
+	public int size;
+
+	@Param({"20"})
+	public int fanOut;
+
+	@Param({"42"})
+	public long seed;
+
+	private List<List<String>> paths;
+	private List<Transaction> transactions;
+	private ClusterTree tree;
+
+	@Setup
+	public void setUp() {
+		SyntheticData data = new SyntheticData(seed);
+		paths = data.categoryPaths(size, fanOut);
+		transactions = data.transactions(size);
+		tree = build();
+	}
+
+	private ClusterTree build() {
+		ClusterTree root = new ClusterTree();
+		for (int i = 0; i < size; i++) {
+			// The insertion consumes the categories
+			root.insert(new ArrayList<>(paths.get(i)), transactions.get(i));
+		}
+		return root;
+	}
+
+	@Benchmark
+	public ClusterTree insert() {
+		return build();
+	}
+
+	@Benchmark
+	public List<ClusterTransaction> flatten() {
+		return tree.flatten();
+	}
+}
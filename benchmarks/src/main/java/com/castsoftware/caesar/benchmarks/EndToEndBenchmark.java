@@ -0,0 +1,208 @@
+package com.castsoftware.caesar.benchmarks;
+
+import com.castsoftware.caesar.configuration.Configuration;
+import com.castsoftware.caesar.procedures.*;
+import org.json.simple.JSONArray;
+import org.json.simple.JSONObject;
+import org.neo4j.graphdb.GraphDatabaseService;
+import org.neo4j.graphdb.Result;
+import org.neo4j.graphdb.Transaction;
+import org.neo4j.harness.Neo4j;
+import org.neo4j.harness.Neo4jBuilders;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.*;
+
+/**
+ * Time every <code>caesar.*</code> procedure on generated graphs of increasing size, in an embedded
+ * database. Each size runs in a new database.
+ *
+ * <pre>
+ * java -cp target/benchmarks.jar com.castsoftware.caesar.benchmarks.EndToEndBenchmark \
+ *     [--sizes 1000,10000,100000] [--seed 42] [--output e2e.json]
+ * </pre>
+ *
+ * The number of queries of each procedure is read from <code>caesar.metrics.queries</code>.
+ */
+public class EndToEndBenchmark {
+
+	private static final String SOURCE = "BenchmarkSource";
+	private static final String TARGET = "BenchmarkTarget";
+	private static final String LEVEL = "Level_Divide";
+	private static final long MIN_SIZE = 10;
+
+	private static final List<Class<?>> PROCEDURES = List.of(
+			WorkspaceProcedures.class, TransactionProcedures.class, ClassifyProcedures.class,
+			SimilarityProcedures.class, DivideProcedures.class, MetricsProcedures.class);
+
+	/**
+	 * Calls of the procedures, in their execution order. The workspace must be set first.
+	 * @param workspace Workspace folder
+	 * @return The name of each procedure with its call
+	 */
+	private static LinkedHashMap<String, String> calls(Path workspace) {
+		String folder = workspace.toString().replace("\\", "/");
+		LinkedHashMap<String, String> calls = new LinkedHashMap<>();
+		calls.put("caesar.workspace.set", String.format("CALL caesar.workspace.set('%s')", folder));
+		calls.put("caesar.workspace.get", "CALL caesar.workspace.get()");
+		calls.put("caesar.transactions.list", String.format("CALL caesar.transactions.list('%s', %d)", SOURCE, MIN_SIZE));
+		calls.put("caesar.transactions.average.uniqueness",
+				String.format("CALL caesar.transactions.average.uniqueness('%s', %d)", SOURCE, MIN_SIZE));
+		calls.put("caesar.classify.transactions", String.format("CALL caesar.classify.transactions('%s', %d)", SOURCE, MIN_SIZE));
+		calls.put("caesar.classify.cluster", String.format("CALL caesar.classify.cluster('%s', %d)", SOURCE, MIN_SIZE));
+		calls.put("caesar.similarity.transactions",
+				String.format("CALL caesar.similarity.transactions('%s', '%s', '%s/')", SOURCE, TARGET, folder));
+		calls.put("caesar.similarity.database", String.format("CALL caesar.similarity.database('%s', '%s')", SOURCE, TARGET));
+		calls.put("caesar.divide.level.per.transaction",
+				String.format("CALL caesar.divide.level.per.transaction('%s', '%s')", SOURCE, LEVEL));
+		calls.put("caesar.metrics.queries", "CALL caesar.metrics.queries()");
+		return calls;
+	}
+
+	/**
+	 * Run the procedures on one size
+	 * @param size Number of transactions per application
+	 * @param seed Seed of the generator
+	 * @return The measures of each procedure
+	 */
+	private static JSONArray runSize(int size, long seed) throws IOException {
+		Path workspace = createWorkspace();
+		Neo4j neo4j = build();
+		JSONArray measures = new JSONArray();
+
+		try {
+			GraphDatabaseService db = neo4j.defaultDatabaseService();
+
+			long start = System.nanoTime();
+			new CastGraphGenerator(seed, size).generate(db, SOURCE, TARGET, LEVEL);
+			long generation = (System.nanoTime() - start) / 1_000_000;
+			System.out.printf("[%d] Graph generated in %d ms%n", size, generation);
+
+			LinkedHashMap<String, String> calls = calls(workspace);
+			for (String name : registeredProcedures(db)) {
+				if (!calls.containsKey(name)) System.out.printf("[%d] No benchmark declared for %s%n", size, name);
+			}
+
+			for (Map.Entry<String, String> call : calls.entrySet()) {
+				JSONObject measure = new JSONObject();
+				measure.put("size", size);
+				measure.put("procedure", call.getKey());
+				measure.put("generationMs", generation);
+
+				// The statistics of the previous procedure are cleared
+				execute(db, "CALL caesar.metrics.queries(true)");
+
+				start = System.nanoTime();
+				try {
+					long rows = execute(db, call.getValue());
+					measure.put("wallTimeMs", (System.nanoTime() - start) / 1_000_000);
+					measure.put("rows", rows);
+					measure.put("queries", countQueries(db));
+				} catch (RuntimeException e) {
+					measure.put("wallTimeMs", (System.nanoTime() - start) / 1_000_000);
+					measure.put("error", e.getMessage());
+				}
+
+				System.out.printf("[%d] %s%n", size, measure.toJSONString());
+				measures.add(measure);
+			}
+		} finally {
+			neo4j.close();
+		}
+		return measures;
+	}
+
+	/**
+	 * Create a temporary workspace, holding the default configuration of the extension
+	 * @return The path of the workspace
+	 */
+	private static Path createWorkspace() throws IOException {
+		Path workspace = Files.createTempDirectory("caesar-benchmark");
+		try (InputStream input = EndToEndBenchmark.class.getClassLoader().getResourceAsStream("default_configuration.json")) {
+			if (input == null) throw new IOException("No file 'default_configuration.json' was found.");
+			Files.copy(input, workspace.resolve(Configuration.get("workspace.configuration.file")));
+		}
+		return workspace;
+	}
+
+	private static Neo4j build() {
+		var builder = Neo4jBuilders.newInProcessBuilder().withDisabledServer();
+		for (Class<?> procedure : PROCEDURES) builder = builder.withProcedure(procedure);
+		return builder.build();
+	}
+
+	/**
+	 * Execute a query in its own transaction and consume its rows
+	 * @return The number of rows
+	 */
+	private static long execute(GraphDatabaseService db, String query) {
+		try (Transaction tx = db.beginTx()) {
+			long rows = 0;
+			try (Result result = tx.execute(query)) {
+				while (result.hasNext()) {
+					result.next();
+					rows++;
+				}
+			}
+			tx.commit();
+			return rows;
+		}
+	}
+
+	private static long countQueries(GraphDatabaseService db) {
+		try (Transaction tx = db.beginTx()) {
+			Result result = tx.execute("CALL caesar.metrics.queries() YIELD calls RETURN sum(calls) as queries");
+			long queries = result.hasNext() ? ((Number) result.next().get("queries")).longValue() : 0;
+			tx.commit();
+			return queries;
+		}
+	}
+
+	private static List<String> registeredProcedures(GraphDatabaseService db) {
+		List<String> names = new ArrayList<>();
+		try (Transaction tx = db.beginTx()) {
+			Result result = tx.execute(
+					"CALL dbms.procedures() YIELD name WHERE name STARTS WITH 'caesar.' RETURN name ORDER BY name");
+			while (result.hasNext()) names.add((String) result.next().get("name"));
+			tx.commit();
+		}
+		return names;
+	}
+
+	public static void main(String[] args) throws IOException {
+		List<Integer> sizes = List.of(1000, 10000, 100000);
+		long seed = 42;
+		Path output = Path.of("e2e.json");
+
+		for (int i = 0; i + 1 < args.length; i += 2) {
+			switch (args[i]) {
+				case "--sizes":
+					List<Integer> parsed = new ArrayList<>();
+					for (String s : args[i + 1].split(",")) parsed.add(Integer.parseInt(s.trim()));
+					sizes = parsed;
+					break;
+				case "--seed":
+					seed = Long.parseLong(args[i + 1]);
+					break;
+				case "--output":
+					output = Path.of(args[i + 1]);
+					break;
+				default:
+					System.err.printf("Unknown option '%s'.%n", args[i]);
+			}
+		}
+
+		JSONArray results = new JSONArray();
+		for (int size : sizes) results.addAll(runSize(size, seed));
+
+		JSONObject report = new JSONObject();
+		report.put("seed", seed);
+		report.put("results", results);
+		Files.writeString(output, report.toJSONString(), StandardCharsets.UTF_8);
+		System.out.printf("Results written to %s%n", output.toAbsolutePath());
+	}
+}
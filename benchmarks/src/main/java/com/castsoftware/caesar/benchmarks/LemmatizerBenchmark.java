@@ -0,0 +1,53 @@
+package com.castsoftware.caesar.benchmarks;
+
+import com.castsoftware.caesar.services.textProcessing.CachedLemmatizer;
+import com.castsoftware.caesar.services.textProcessing.CoreNlpLemmatizer;
+import com.castsoftware.caesar.services.textProcessing.Lemmatizer;
+import com.castsoftware.caesar.services.textProcessing.RuleBasedLemmatizer;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Comparison of the lemmatizers, with and without the lemma cache.
+ * Each operation lemmatizes the whole batch of words.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class LemmatizerBenchmark {
+
+	private static final int CACHE_SIZE = 50000;
+
+	@Param({"RULE_BASED", "CORE_NLP"})
+	public String lemmatizer;
+
+	@Param({"false", "true"})
+	public boolean cached;
+
+	@Param({"1000"})
+	public int size;
+
+	@Param({"42"})
+	public long seed;
+
+	private Lemmatizer instance;
+	private List<String> words;
+
+	@Setup
+	public void setUp() {
+		Lemmatizer delegate = "CORE_NLP".equals(lemmatizer) ? new CoreNlpLemmatizer() : new RuleBasedLemmatizer();
+		instance = cached ? new CachedLemmatizer(delegate, CACHE_SIZE) : delegate;
+		words = new SyntheticData(seed).words(size);
+	}
+
+	@Benchmark
+	public void lemmatize(Blackhole blackhole) {
+		for (String word : words) blackhole.consume(instance.lemmatize(word));
+	}
+}
@@ -0,0 +1,121 @@
+package com.castsoftware.caesar.benchmarks;
+
+import com.castsoftware.caesar.services.textProcessing.CoreNlpLemmatizer;
+import com.castsoftware.caesar.services.textProcessing.Lemmatizer;
+import com.castsoftware.caesar.services.textProcessing.RuleBasedLemmatizer;
+import org.json.simple.JSONArray;
+import org.json.simple.JSONObject;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.TreeSet;
+
+/**
+ * Run the rule based and the CoreNLP lemmatizers on the same words, and report how often they agree
+ * along with the words where they differ. Lemmas are compared regardless of their case.
+ *
+ * <pre>
+ * java -cp target/benchmarks.jar com.castsoftware.caesar.benchmarks.LemmatizerComparison \
+ *     [--words words.txt] [--size 1000] [--seed 42] [--output lemmas.json]
+ * </pre>
+ *
+ * The words are read from the file given with <code>--words</code> (one word per line), or
+ * generated by {@link SyntheticData}. Duplicates are removed and the words are sorted, so the same
+ * inputs always give the same report.
+ */
+public class LemmatizerComparison {
+
+	/**
+	 * Compare the lemmatizers on a list of words
+	 * @param words Words to lemmatize
+	 * @param ruleBased Rule based lemmatizer
+	 * @param coreNlp CoreNLP lemmatizer
+	 * @return The report, with the agreement rate and the differences
+	 */
+	private static JSONObject compare(List<String> words, Lemmatizer ruleBased, Lemmatizer coreNlp) {
+		JSONArray differences = new JSONArray();
+		int agreements = 0;
+
+		for (String word : words) {
+			String ruleBasedLemma = ruleBased.lemmatize(word);
+			String coreNlpLemma = coreNlp.lemmatize(word);
+			if (ruleBasedLemma.equalsIgnoreCase(coreNlpLemma)) {
+				agreements++;
+				continue;
+			}
+
+			JSONObject difference = new JSONObject();
+			difference.put("word", word);
+			difference.put("ruleBased", ruleBasedLemma);
+			difference.put("coreNlp", coreNlpLemma);
+			differences.add(difference);
+		}
+
+		JSONObject report = new JSONObject();
+		report.put("words", words.size());
+		report.put("agreements", agreements);
+		report.put("agreementRate", words.isEmpty() ? 1.0 : (double) agreements / words.size());
+		report.put("differences", differences);
+		return report;
+	}
+
+	private static List<String> readWords(Path file) throws IOException {
+		TreeSet<String> words = new TreeSet<>();
+		for (String line : Files.readAllLines(file, StandardCharsets.UTF_8)) {
+			String word = line.trim();
+			if (!word.isEmpty()) words.add(word);
+		}
+		return new ArrayList<>(words);
+	}
+
+	public static void main(String[] args) throws IOException {
+		Path wordsFile = null;
+		int size = 1000;
+		long seed = 42;
+		Path output = null;
+
+		for (int i = 0; i + 1 < args.length; i += 2) {
+			switch (args[i]) {
+				case "--words":
+					wordsFile = Path.of(args[i + 1]);
+					break;
+				case "--size":
+					size = Integer.parseInt(args[i + 1]);
+					break;
+				case "--seed":
+					seed = Long.parseLong(args[i + 1]);
+					break;
+				case "--output":
+					output = Path.of(args[i + 1]);
+					break;
+				default:
+					System.err.printf("Unknown option '%s'.%n", args[i]);
+			}
+		}
+
+		List<String> words = wordsFile != null
+				? readWords(wordsFile)
+				: new ArrayList<>(new TreeSet<>(new SyntheticData(seed).words(size)));
+
+		JSONObject report = compare(words, new RuleBasedLemmatizer(), new CoreNlpLemmatizer());
+		report.put("source", wordsFile != null ? wordsFile.toString() : String.format("synthetic (size %d, seed %d)", size, seed));
+
+		JSONArray differences = (JSONArray) report.get("differences");
+		System.out.printf("%d words, %d agreements (%.1f %%), %d differences%n",
+				words.size(), (int) report.get("agreements"), 100 * (double) report.get("agreementRate"), differences.size());
+		for (Object item : differences) {
+			JSONObject difference = (JSONObject) item;
+			System.out.printf("  %-20s rule based: %-20s CoreNLP: %s%n",
+					difference.get("word"), difference.get("ruleBased"), difference.get("coreNlp"));
+		}
+
+		if (output != null) {
+			Files.writeString(output, report.toJSONString(), StandardCharsets.UTF_8);
+			System.out.printf("Report written to %s%n", output.toAbsolutePath());
+		}
+	}
+}
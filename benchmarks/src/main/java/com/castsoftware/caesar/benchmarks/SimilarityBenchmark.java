@@ -0,0 +1,70 @@
+package com.castsoftware.caesar.benchmarks;
+
+import com.castsoftware.caesar.controllers.SimilarityController;
+import com.castsoftware.caesar.sdk.TransactionSnapshot;
+import com.castsoftware.caesar.services.similarity.InvertedIndexSimilarity;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Similarity scoring : delta between the objects of two transactions (comparison of applications),
+ * and links between all the transactions of an application (divide procedure).
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class SimilarityBenchmark {
+
+	@Param({"1000", "5000"})
+	public int listSize;
+
+	@Param({"1000"})
+	public int numTransactions;
+
+	@Param({"30"})
+	public int transactionSize;
+
+	@Param({"42"})
+	public long seed;
+
+	private List<String> source;
+	private List<String> target;
+	private int[] sourceKeys;
+	private int[] targetKeys;
+	private TransactionSnapshot snapshot;
+
+	@Setup
+	public void setUp() {
+		SyntheticData data = new SyntheticData(seed);
+		source = data.objectNames(listSize, 2 * listSize);
+		target = data.objectNames(listSize, 2 * listSize);
+
+		// Keys of the objects, as encoded by the controller once per application
+		Map<String, Integer> dictionary = new HashMap<>();
+		sourceKeys = source.stream().mapToInt(o -> dictionary.computeIfAbsent(o, k -> dictionary.size())).sorted().toArray();
+		targetKeys = target.stream().mapToInt(o -> dictionary.computeIfAbsent(o, k -> dictionary.size())).sorted().toArray();
+		snapshot = data.snapshot(numTransactions, 10 * numTransactions, transactionSize);
+	}
+
+	@Benchmark
+	public Double getDeltaList() {
+		return SimilarityController.getDeltaList(source, target);
+	}
+
+	@Benchmark
+	public Double getDeltaListEncoded() {
+		return SimilarityController.getDeltaList(sourceKeys, targetKeys);
+	}
+
+	@Benchmark
+	public InvertedIndexSimilarity.SimilarityLinks linkTransactions() {
+		return new InvertedIndexSimilarity(snapshot).computeLinks();
+	}
+}
@@ -0,0 +1,197 @@
+package com.castsoftware.caesar.benchmarks;
+
+import com.castsoftware.caesar.entities.transactions.Transaction;
+import com.castsoftware.caesar.sdk.TransactionSnapshot;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+
+/**
+ * Seeded generator of inputs looking like the transactions of a CAST application. The same seed
+ * always produces the same inputs, so the results of two releases can be compared.
+ */
+public class SyntheticData {
+
+	private static final String[] VERBS = {
+			"get", "set", "create", "update", "delete", "find", "load", "save", "list", "search",
+			"validate", "process", "send", "compute", "export", "import", "check", "register", "cancel", "approve"
+	};
+
+	private static final String[] NOUNS = {
+			"customer", "customers", "order", "orders", "invoice", "invoices", "payment", "payments",
+			"account", "accounts", "product", "products", "category", "categories", "address", "addresses",
+			"shipment", "shipments", "user", "users", "report", "reports", "contract", "contracts",
+			"status", "history", "settings", "document", "documents", "transaction", "transactions",
+			"item", "items", "price", "prices", "discount", "discounts", "delivery", "deliveries", "stock"
+	};
+
+	private static final String[] INFLECTED = {
+			"customers", "ordered", "updating", "created", "processing", "invoices", "categories", "running",
+			"stopped", "addresses", "boxes", "children", "deliveries", "approved", "shipping", "searches",
+			"validated", "computing", "listed", "exported", "imported", "checked", "cancelled", "registered",
+			"prices", "discounted", "documents", "histories", "reports", "sent", "made", "paid", "built"
+	};
+
+	private final Random random;
+
+	/**
+	 * Names of transactions : camel case methods or REST routes
+	 * @param count Number of names
+	 * @return The names
+	 */
+	public List<String> transactionNames(int count) {
+		List<String> names = new ArrayList<>(count);
+		for (int i = 0; i < count; i++) {
+			if (random.nextInt(3) == 0) names.add(route());
+			else names.add(method());
+		}
+		return names;
+	}
+
+	private String method() {
+		StringBuilder sb = new StringBuilder(pick(VERBS));
+		int nouns = 1 + random.nextInt(3);
+		for (int n = 0; n < nouns; n++) sb.append(capitalize(pick(NOUNS)));
+		return sb.toString();
+	}
+
+	private String route() {
+		StringBuilder sb = new StringBuilder("/api/v").append(1 + random.nextInt(3));
+		int segments = 1 + random.nextInt(3);
+		for (int s = 0; s < segments; s++) {
+			sb.append('/').append(pick(NOUNS));
+			if (random.nextBoolean()) sb.append("/{id}");
+		}
+		return sb.toString();
+	}
+
+	/**
+	 * Transactions with synthetic names
+	 * @param count Number of transactions
+	 * @return The transactions
+	 */
+	public List<Transaction> transactions(int count) {
+		List<String> names = transactionNames(count);
+		List<Transaction> transactions = new ArrayList<>(count);
+		for (int i = 0; i < count; i++) {
+			transactions.add(new Transaction(i, names.get(i), "Benchmark." + names.get(i)));
+		}
+		return transactions;
+	}
+
+	/**
+	 * Words to lemmatize, mixing inflected and base forms
+	 * @param count Number of words
+	 * @return The words
+	 */
+	public List<String> words(int count) {
+		List<String> words = new ArrayList<>(count);
+		for (int i = 0; i < count; i++) {
+			switch (random.nextInt(3)) {
+				case 0: words.add(pick(INFLECTED)); break;
+				case 1: words.add(pick(NOUNS)); break;
+				default: words.add(pick(VERBS)); break;
+			}
+		}
+		return words;
+	}
+
+	/**
+	 * Category paths, as produced by the classification
+	 * @param count Number of paths
+	 * @param fanOut Number of distinct labels per level
+	 * @return The paths, from the root to the leaf
+	 */
+	public List<List<String>> categoryPaths(int count, int fanOut) {
+		List<List<String>> paths = new ArrayList<>(count);
+		for (int i = 0; i < count; i++) {
+			int depth = 1 + random.nextInt(4);
+			List<String> path = new ArrayList<>(depth);
+			for (int d = 0; d < depth; d++) path.add(NOUNS[random.nextInt(Math.min(fanOut, NOUNS.length))]);
+			paths.add(path);
+		}
+		return paths;
+	}
+
+	/**
+	 * Full names of objects, as compared by the similarity between applications
+	 * @param count Number of objects
+	 * @param universe Number of distinct objects to draw from
+	 * @return The full names
+	 */
+	public List<String> objectNames(int count, int universe) {
+		List<String> objects = new ArrayList<>(count);
+		for (int i = 0; i < count; i++) {
+			objects.add("com.company.application.Object" + random.nextInt(universe));
+		}
+		return objects;
+	}
+
+	/**
+	 * Snapshot of an application. Transactions are built around a few functional areas : each
+	 * transaction mostly uses the objects of its area, and some shared objects (utilities, tables).
+	 * @param numTransactions Number of transactions
+	 * @param numObjects Number of objects in the application
+	 * @param averageSize Average number of objects per transaction
+	 * @return The snapshot
+	 */
+	public TransactionSnapshot snapshot(int numTransactions, int numObjects, int averageSize) {
+		int numAreas = Math.max(1, numTransactions / 50);
+		int areaSize = Math.max(1, numObjects / numAreas);
+		int numShared = Math.max(1, numObjects / 20);
+
+		long[] transactionIds = new long[numTransactions];
+		String[] names = new String[numTransactions];
+		String[] fullNames = new String[numTransactions];
+		int[] offsets = new int[numTransactions + 1];
+		int[] objects = new int[numTransactions * averageSize * 2];
+		int size = 0;
+
+		List<String> transactionNames = transactionNames(numTransactions);
+		for (int t = 0; t < numTransactions; t++) {
+			transactionIds[t] = numObjects + t;
+			names[t] = transactionNames.get(t);
+			fullNames[t] = "Benchmark." + names[t];
+
+			int area = random.nextInt(numAreas);
+			int count = 1 + random.nextInt(2 * averageSize - 1);
+			int[] drawn = new int[count];
+			for (int o = 0; o < count; o++) {
+				drawn[o] = random.nextInt(5) == 0
+						? random.nextInt(numShared)
+						: Math.min(numObjects - 1, area * areaSize + random.nextInt(areaSize));
+			}
+
+			// The snapshot expects distinct objects in each transaction
+			int[] distinct = Arrays.stream(drawn).distinct().toArray();
+			if (size + distinct.length > objects.length) objects = Arrays.copyOf(objects, objects.length * 2);
+			System.arraycopy(distinct, 0, objects, size, distinct.length);
+			size += distinct.length;
+			offsets[t + 1] = size;
+		}
+
+		long[] objectIds = new long[numObjects];
+		for (int o = 0; o < numObjects; o++) objectIds[o] = o;
+
+		return new TransactionSnapshot("Benchmark", transactionIds, names, fullNames,
+				offsets, Arrays.copyOf(objects, size), objectIds);
+	}
+
+	private String pick(String[] values) {
+		return values[random.nextInt(values.length)];
+	}
+
+	private static String capitalize(String word) {
+		return Character.toUpperCase(word.charAt(0)) + word.substring(1);
+	}
+
+	/**
+	 * Constructor
+	 * @param seed Seed of the generator
+	 */
+	public SyntheticData(long seed) {
+		this.random = new Random(seed);
+	}
+}
@@ -18,6 +18,16 @@ public class DetectionConfiguration {
 
 	private final Boolean propagationConsiderInherit;
 
+	// Similarity
+	private final Integer minHashSignatureSize;
+	private final Integer lshBands;
+	private final String objectsHashProperty;
+	private final String versionSimilarityLink;
+
+	private final String lemmatizer;
+
+	private final Integer writeBatchSize;
+
 	public Long getMinCliqueSize() {
 		return minCliqueSize;
 	}
@@ -62,6 +72,56 @@ public class DetectionConfiguration {
 		return labelPropagationIteration;
 	}
 
+	public Integer getMinHashSignatureSize() {
+		return minHashSignatureSize;
+	}
+
+	public Integer getLshBands() {
+		return lshBands;
+	}
+
+	public String getObjectsHashProperty() {
+		return objectsHashProperty;
+	}
+
+	public String getVersionSimilarityLink() {
+		return versionSimilarityLink;
+	}
+
+	public String getLemmatizer() {
+		return lemmatizer;
+	}
+
+	public Integer getWriteBatchSize() {
+		return writeBatchSize;
+	}
+
+	/**
+	 * Get an optional numeric value of the configuration
+	 * @param json Json file content
+	 * @param key Key of the value
+	 * @param defaultValue Value returned if the key is absent
+	 * @return The value as a number
+	 */
+	private static Number getOptionalNumber(Map<String, Object> json, String key, Number defaultValue) {
+		Object value = json.get(key);
+		if (value == null) return defaultValue;
+		return (Number) value;
+	}
+
+	/**
+	 * Get an optional text value of the configuration
+	 * @param json Json file content
+	 * @param key Key of the value
+	 * @param defaultValue Value returned if the key is absent
+	 * @return The value as a string
+	 */
+	private static String getOptionalString(Map<String, Object> json, String key, String defaultValue) {
+		Object value = json.get(key);
+		if (value == null) return defaultValue;
+		return (String) value;
+	}
+
 	/**
 	 * Constructor
 	 * @param json Json file content
@@ -83,8 +143,29 @@ public class DetectionConfiguration {
 
 			this.propagationConsiderInherit = (Boolean) json.get("PROPAGATION_CONSIDER_INHERIT");
 
+			this.minHashSignatureSize = getOptionalNumber(json, "MINHASH_SIGNATURE_SIZE", 128).intValue();
+			this.lshBands = getOptionalNumber(json, "LSH_BANDS", 32).intValue();
+			this.objectsHashProperty = getOptionalString(json, "OBJECTS_HASH_PROPERTY", "OBJECTS_HASH");
+			this.versionSimilarityLink = getOptionalString(json, "VERSION_SIMILARITY_LINK", "VERSION_SIMILARITY");
+
+			this.lemmatizer = getOptionalString(json, "LEMMATIZER", "RULE_BASED");
+
+			this.writeBatchSize = getOptionalNumber(json, "WRITE_BATCH_SIZE", 10000).intValue();
+
 		} catch (Exception err) {
 			throw new FileCorruptedException("Failed create DetectionConfiguration due to corrupted json file", "DETCxCONS01");
 		}
+
+		// The MinHash signature is cut in bands of the same size
+		if (minHashSignatureSize <= 0 || lshBands <= 0 || minHashSignatureSize % lshBands != 0) {
+			throw new FileCorruptedException(String.format(
+					"MINHASH_SIGNATURE_SIZE (%d) must be a positive multiple of LSH_BANDS (%d)",
+					minHashSignatureSize, lshBands), "DETCxCONS02");
+		}
+
+		if (writeBatchSize <= 0) {
+			throw new FileCorruptedException(String.format(
+					"WRITE_BATCH_SIZE (%d) must be positive", writeBatchSize), "DETCxCONS03");
+		}
 	}
 }
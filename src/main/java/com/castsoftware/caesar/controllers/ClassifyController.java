@@ -2,6 +2,7 @@ package com.castsoftware.caesar.controllers;
 
 import com.castsoftware.caesar.configuration.DetectionConfiguration;
 import com.castsoftware.caesar.database.Neo4jAL;
+import com.castsoftware.caesar.dictionary.Dictionary;
 import com.castsoftware.caesar.entities.transactions.ClusterTransaction;
 import com.castsoftware.caesar.entities.transactions.ClusterTree;
 import com.castsoftware.caesar.entities.transactions.Transaction;
@@ -11,13 +12,17 @@ import com.castsoftware.caesar.exceptions.neo4j.Neo4jBadRequestException;
 import com.castsoftware.caesar.exceptions.neo4j.Neo4jQueryException;
 import com.castsoftware.caesar.exceptions.workspace.MissingWorkspaceException;
 import com.castsoftware.caesar.results.TransactionClassifiedResult;
+import com.castsoftware.caesar.sdk.TransactionSnapshot;
 import com.castsoftware.caesar.sdk.Transactions;
+import com.castsoftware.caesar.services.textProcessing.CachedLemmatizer;
+import com.castsoftware.caesar.services.textProcessing.Lemmatizers;
 import com.castsoftware.caesar.services.transaction.TransactionClassifyService;
 import com.castsoftware.caesar.workspace.Workspace;
-import org.neo4j.graphdb.Node;
 
 import java.io.IOException;
 import java.util.*;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.Stream;
 
 public class ClassifyController {
 
@@ -29,81 +34,76 @@ public class ClassifyController {
 	private final DetectionConfiguration configuration;
 
 	/**
-	 * Classify the transactions
+	 * Classify the transactions. Each transaction is classified while the stream is consumed.
 	 * @param minSize Minimum size of the transaction
-	 * @return Classified transaction
+	 * @return Stream of the classified transactions
 	 * @throws Neo4jBadRequestException
 	 */
-	public List<TransactionClassifiedResult> classifyTransaction(Long minSize) throws Neo4jBadRequestException {
-		TransactionClassifyService tns = new TransactionClassifyService();
-
-		Long count = Transactions.getTransactionsCount(neo4jAL, application, minSize.intValue());
-		List<Node> transactions = Transactions.getTransactions(neo4jAL, application, minSize.intValue());
-		List<TransactionClassifiedResult> transactionList = new ArrayList<>();
-
-		int it = 0;
-		int error = 0;
-		Transaction transaction;
-
-		for(Node tn : transactions) {
-			neo4jAL.logInfo(String.format("Fetching transaction : %d on %d. [Error: %d]", it, count, error));
-			it ++;
-
-			try {
-				transaction = Transactions.getTransactionFromNode(neo4jAL, tn);
-				List<String> categories = tns.classifyTransaction(transaction);
-				transactionList.add(new TransactionClassifiedResult(transaction, categories)); // Add to return
-			} catch (Exception | Neo4jBadRequestException e) {
-				error ++;
-				neo4jAL.logError(String.format("Failed to get transaction [%d] insights.", tn.getId()));
-			}
-
-		}
-
-		return transactionList;
+	public Stream<TransactionClassifiedResult> classifyTransaction(Long minSize) throws Neo4jBadRequestException {
+		CachedLemmatizer lemmatizer = Lemmatizers.get(configuration.getLemmatizer());
+		TransactionClassifyService tns = new TransactionClassifyService(lemmatizer);
+		Lemmatizers.reportWarnings(neo4jAL.getLogger());
+		Dictionary.getInstance().reportLoadWarnings(neo4jAL.getLogger());
+
+		AtomicInteger classified = new AtomicInteger(0);
+		AtomicInteger error = new AtomicInteger(0);
+
+		return Transactions.streamTransactionsWithMetrics(neo4jAL, application, minSize.intValue())
+				.map(transaction -> {
+					try {
+						List<String> categories = tns.classifyTransaction(transaction);
+						classified.incrementAndGet();
+						return new TransactionClassifiedResult(transaction, categories);
+					} catch (Exception e) {
+						error.incrementAndGet();
+						neo4jAL.logError(String.format("Failed to get transaction [%d] insights.", transaction.getId()));
+						return null;
+					}
+				})
+				.filter(Objects::nonNull)
+				.onClose(() -> {
+					neo4jAL.logInfo(String.format("%d transactions were classified. [Error: %d]", classified.get(), error.get()));
+					neo4jAL.logInfo(lemmatizer.getCache().toString());
+				});
 	}
 
 
 	/**
-	 * Compute the frequency of each category, along with the uniqueness and the number of object
+	 * Compute the frequency of each category, along with the uniqueness and the number of object.
+	 * The clusters need all the transactions to be classified, the metrics of each cluster are then computed while the
+	 * stream is consumed.
 	 * @param minSize Minimum size
-	 * @return The list of Cluster
+	 * @return The stream of Cluster
 	 */
-	public List<ClusterTransaction> weightTransactionCategory(Long minSize) throws Neo4jBadRequestException, Exception {
-		TransactionClassifyService transactionService = new TransactionClassifyService();
-		Map<String, ClusterTransaction> transactionMap = new HashMap<>();
-
-		Long count = Transactions.getTransactionsCount(neo4jAL, application, minSize.intValue());
-		List<Node> transactions = Transactions.getTransactions(neo4jAL, application, minSize.intValue());
+	public Stream<ClusterTransaction> weightTransactionCategory(Long minSize) throws Neo4jBadRequestException, Exception {
+		CachedLemmatizer lemmatizer = Lemmatizers.get(configuration.getLemmatizer());
+		TransactionClassifyService transactionService = new TransactionClassifyService(lemmatizer);
+		Lemmatizers.reportWarnings(neo4jAL.getLogger());
+		Dictionary.getInstance().reportLoadWarnings(neo4jAL.getLogger());
 
+		TransactionSnapshot snapshot = TransactionSnapshot.load(neo4jAL, application);
 		ClusterTree clusterTree = new ClusterTree();
 
-		int it = 0;
-
 		// Break transaction and sort them by categories
-		for(Node transactionNode : transactions) {
-			neo4jAL.logInfo(String.format("Fetching transaction : %d on %d", it, count));
-			it ++;
-			Transaction tn = Transactions.getTransactionFromNode(neo4jAL, transactionNode);
+		Transactions.streamTransactionsWithMetrics(snapshot, minSize.intValue()).forEach(tn -> {
 			// Find categories
 			List<String> categories = transactionService.classifyTransaction(tn);
 
 			clusterTree.insert(categories, tn);
-		}
-
-		neo4jAL.logInfo(String.format("%d clusters were identified during the process", transactionMap.size()));
+		});
 
 		// Compute metrics on set of transaction
 		List<ClusterTransaction> returnList = clusterTree.flatten();
-		returnList.forEach(x -> {
+		neo4jAL.logInfo(String.format("%d clusters were identified during the process", returnList.size()));
+		neo4jAL.logInfo(lemmatizer.getCache().toString());
+
+		return returnList.stream().peek(x -> {
 			try {
-				x.computeSizeMetrics(neo4jAL);
+				x.computeSizeMetrics(snapshot);
 			} catch (Neo4jBadRequestException e) {
 				neo4jAL.logError(String.format("Failed to compute metrics for cluster label [%s]", x.getName()));
 			}
 		});
-
-		return returnList;
 	}
 
 	/**
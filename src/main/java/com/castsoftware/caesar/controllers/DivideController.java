@@ -1,14 +1,19 @@
 package com.castsoftware.caesar.controllers;
 
 import com.castsoftware.caesar.configuration.DetectionConfiguration;
+import com.castsoftware.caesar.database.BatchWriter;
 import com.castsoftware.caesar.database.Neo4jAL;
-import com.castsoftware.caesar.database.Neo4jTypeManager;
 import com.castsoftware.caesar.exceptions.file.FileCorruptedException;
 import com.castsoftware.caesar.exceptions.file.MissingFileException;
 import com.castsoftware.caesar.exceptions.neo4j.Neo4jBadRequestException;
 import com.castsoftware.caesar.exceptions.neo4j.Neo4jNoResult;
 import com.castsoftware.caesar.exceptions.neo4j.Neo4jQueryException;
 import com.castsoftware.caesar.exceptions.workspace.MissingWorkspaceException;
+import com.castsoftware.caesar.sdk.TransactionSnapshot;
+import com.castsoftware.caesar.services.community.LabelPropagation;
+import com.castsoftware.caesar.services.profiling.PhaseProfiler;
+import com.castsoftware.caesar.services.similarity.InvertedIndexSimilarity;
+import com.castsoftware.caesar.services.similarity.SortedSets;
 import com.castsoftware.caesar.workspace.Workspace;
 import org.neo4j.graphdb.*;
 
@@ -18,11 +23,99 @@ import java.net.URISyntaxException;
 import java.util.List;
 import java.util.*;
 
-import static java.lang.Math.exp;
-
 public class DivideController {
 
   private static final String ERROR_CODE = "DIVCx";
+  private static final int LINK_BATCH_SIZE = 10000;
+  private static final int MIN_TRANSACTION_SIZE = 10;
+  private static final String LINK_FINGERPRINT_PROPERTY = "SimilarityFingerprint";
+  private static final String TAGS_PROPERTY = "Tags";
+
+  // Queries anchored on the level only filter the application label, so they don't depend on it
+  private static final String FIND_LEVEL_QUERY =
+      Neo4jAL.registerQuery(
+          "divide.findLevel",
+          "MATCH (l:Level5) WHERE l.Name=$levelName AND $application IN labels(l) "
+              + "RETURN l as node LIMIT 1");
+  private static final String LEVEL_NODES_QUERY =
+      Neo4jAL.registerQuery(
+          "divide.levelNodes",
+          "MATCH (l:Level5)-[]->(o:Object) "
+              + "WHERE ID(l)=$idLevel AND $application IN labels(o) "
+              + "REMOVE o.`%1$s` "
+              + "RETURN ID(o) as idNode");
+  private static final String ISOLATED_NODES_QUERY =
+      Neo4jAL.registerQuery(
+          "divide.isolatedNodes",
+          "MATCH (l:Level5)-[]->(o:Object) "
+              + "WHERE ID(l)=$idLevel AND $application IN labels(o) AND NOT (o)-[]-(:Object) "
+              + "SET o.Tags = CASE WHEN o.Tags IS NULL THEN [($levelTag+o.Level+' isolated')] "
+              + "ELSE [ x IN o.Tags WHERE NOT x CONTAINS $levelTag ] + ($levelTag+o.Level+' isolated') END "
+              + "RETURN o as node");
+  private static final String UNDECIDED_NODES_QUERY =
+      Neo4jAL.registerQuery(
+          "divide.undecidedNodes",
+          "MATCH (l:Level5)-[]->(o:Object)-[]-(other:Object)<-[]-(otherL:Level5) "
+              + "WHERE ID(l)=$idLevel AND ID(l)<>ID(otherL) "
+              + "AND $application IN labels(o) AND $application IN labels(other) "
+              + "AND $application IN labels(otherL) "
+              + "RETURN DISTINCT otherL as otherLevel, o as node");
+  private static final String TRANSACTION_OBJECTS_QUERY =
+      Neo4jAL.registerQuery(
+          "divide.transactionObjects",
+          "UNWIND range(0, size($transactions) - 1) as i "
+              + "MATCH (t:Transaction)-[]->(o:Object) "
+              + "WHERE ID(t)=$transactions[i] AND o.Level=$levelName "
+              + "RETURN i as index, COLLECT(ID(o)) as objects");
+  private static final String RESET_DRILLDOWN_QUERY =
+      Neo4jAL.registerQuery(
+          "divide.resetDrilldown",
+          "MATCH (l:Level5)-[]->(o:Object) WHERE ID(l)=$idLevel SET o.`%1$s`=$defaultValue");
+  private static final String DRILLDOWN_COMMUNITIES_QUERY =
+      Neo4jAL.registerQuery(
+          "divide.drilldownCommunities",
+          "UNWIND $transactions as idTransaction "
+              + "MATCH (t:Transaction)-[]->(o:Object)<-[]-(l:Level5) "
+              + "WHERE ID(t)=idTransaction AND ID(l)=$idLevel "
+              + "RETURN t.`%1$s` as comId, COLLECT(DISTINCT ID(o)) as objectsID");
+  private static final String RESET_COLOR_QUERY =
+      Neo4jAL.registerQuery(
+          "divide.resetColor",
+          "MATCH (l:Level5)-[]->(o:Object) WHERE ID(l)=$idNode SET o.Color='rgb(182, 0, 255)'");
+  private static final String NODE_COMMUNITIES_QUERY =
+      Neo4jAL.registerQuery(
+          "divide.nodeCommunities",
+          "MATCH (l:Level5)-[]->(o:Object) WHERE ID(l)=$idNode AND EXISTS(o.`%1$s`) "
+              + "RETURN DISTINCT ID(o) as idNode, o.`%1$s` as comId");
+  private static final String DELETE_LINKS_QUERY =
+      Neo4jAL.registerQuery(
+          "divide.deleteLinks", "MATCH (n:Transaction:`%1$s`)-[r:`%2$s`]-() DELETE r");
+  private static final String CREATE_LINKS_QUERY =
+      Neo4jAL.registerQuery(
+          "divide.createLinks",
+          "UNWIND $links as link "
+              + "MATCH (s:Transaction) WHERE ID(s)=link.source "
+              + "MATCH (d:Transaction) WHERE ID(d)=link.dest "
+              + "CREATE (s)-[r:`%1$s`]->(d) SET r.`%2$s`=link.weight");
+  private static final String DELETE_OUTDATED_LINKS_QUERY =
+      Neo4jAL.registerQuery(
+          "divide.deleteOutdatedLinks",
+          "MATCH (n:Transaction:`%1$s`)-[r:`%2$s`]->() "
+              + "WHERE n.`%3$s` IS NULL OR n.`%3$s`<>$fingerprint "
+              + "WITH r LIMIT $limit DELETE r RETURN COUNT(r) as count");
+  private static final String LINKED_SOURCES_QUERY =
+      Neo4jAL.registerQuery(
+          "divide.linkedSources",
+          "MATCH (n:Transaction:`%1$s`) WHERE n.`%2$s`=$fingerprint RETURN ID(n) as id");
+  private static final String CREATE_MARKED_LINKS_QUERY =
+      Neo4jAL.registerQuery(
+          "divide.createMarkedLinks",
+          "UNWIND $links as link "
+              + "MATCH (s:Transaction) WHERE ID(s)=link.source "
+              + "MATCH (d:Transaction) WHERE ID(d)=link.dest "
+              + "CREATE (s)-[r:`%1$s`]->(d) SET r.`%2$s`=link.weight "
+              + "WITH s, link WHERE link.last "
+              + "SET s.`%3$s`=$fingerprint");
 
   private static final Color[] COLOR_TABLE = {
     new Color(0x05, 0x04, 0xaa), //  royal blue
@@ -66,16 +159,37 @@ public class DivideController {
 
   private final String application;
   private final String levelName;
+  private final int concurrency;
+  private final int commitBatchSize;
 
   private Node level;
+  private TransactionSnapshot snapshot = null;
   private List<Long> candidatesIdList;
   private List<Long> transactionIdList;
+  private long[] transactionLabels = new long[0];
 
 
   public DivideController(Neo4jAL neo4jAL, String application, String level) throws Exception {
+    this(neo4jAL, application, level, 0, 0);
+  }
+
+  /**
+   * Constructor
+   * @param neo4jAL Neo4j Access Layer
+   * @param application Name of the application
+   * @param level Name of the level to divide
+   * @param concurrency Number of threads used by the label propagation. With 0 or less, all the available cores
+   *     are used
+   * @param commitBatchSize Number of similarity links committed per inner transaction. With 0 or less, the links are
+   *     written in the transaction of the procedure
+   * @throws Exception If the configuration cannot be loaded
+   */
+  public DivideController(Neo4jAL neo4jAL, String application, String level, int concurrency, int commitBatchSize) throws Exception {
     this.neo4jAL = neo4jAL;
     this.application = application;
     this.levelName = level;
+    this.concurrency = concurrency > 0 ? concurrency : Runtime.getRuntime().availableProcessors();
+    this.commitBatchSize = Math.max(0, commitBatchSize);
 
     try {
       this.configuration = Workspace.getInstance(neo4jAL).getConfiguration();
@@ -91,88 +205,87 @@ public class DivideController {
   /**
    * Run the divide & conquer algorithm
    * All steps have been clearly identified
+   * @return The profile of each step, followed by the total
    * @throws Neo4jQueryException
    * @throws Neo4jNoResult
    * @throws Exception
    */
-  public void run() throws Neo4jQueryException, Neo4jNoResult, Exception {
+  public List<PhaseProfiler.Phase> run() throws Neo4jQueryException, Neo4jNoResult, Exception {
     try {
-      long start, finish, timeElapsed;
+      PhaseProfiler profiler = new PhaseProfiler(neo4jAL::getNumExecutedQueries);
+      PhaseProfiler.Phase phase;
 
-      start = System.currentTimeMillis();
+      phase = profiler.start("findLevel");
       neo4jAL.logInfo(
           String.format("Searching level '%s' in application '%s'..", levelName, application));
       this.findLevel();
-      finish = System.currentTimeMillis();
-      timeElapsed = finish - start;
+      phase.stop();
       neo4jAL.logInfo(
-          String.format("(%d ms) Level with name '%s' was found.", timeElapsed, levelName));
+          String.format("(%d ms) Level with name '%s' was found.", phase.getWallTimeMs(), levelName));
 
       neo4jAL.logInfo("Retrieving list of candidates nodes for investigation...");
-      start = System.currentTimeMillis();
+      phase = profiler.start("findToInvestigateNodes");
       this.findToInvestigateNodes();
-      finish = System.currentTimeMillis();
-      timeElapsed = finish - start;
+      phase.stop();
       neo4jAL.logInfo(
           String.format(
               "(%d ms) %d nodes were identified as candidates.",
-              timeElapsed, this.candidatesIdList.size()));
+              phase.getWallTimeMs(), this.candidatesIdList.size()));
 
       neo4jAL.logInfo("Removing isolated nodes");
-      start = System.currentTimeMillis();
+      phase = profiler.start("extractIsolated");
       List<Node> removed = this.extractIsolated();
-      finish = System.currentTimeMillis();
-      timeElapsed = finish - start;
+      phase.stop();
       neo4jAL.logInfo(
           String.format(
               "(%d ms) %d isolated nodes  were removed from the level.",
-              timeElapsed, removed.size()));
+              phase.getWallTimeMs(), removed.size()));
 
 
       neo4jAL.logInfo("Performing the label propagation over transactions.");
-      start = System.currentTimeMillis();
+      phase = profiler.start("transactionLabelPropagation");
       this.transactionLabelPropagation();
-      finish = System.currentTimeMillis();
-      timeElapsed = finish - start;
+      phase.stop();
       neo4jAL.logInfo(
               String.format(
                       "(%d ms) %d Transactions have been identified and grouped.",
-                      timeElapsed, transactionIdList.size()));
+                      phase.getWallTimeMs(), transactionIdList.size()));
 
 
       neo4jAL.logInfo("Extracting undecided nodes (nodes present in multiple levels).");
-      start = System.currentTimeMillis();
+      phase = profiler.start("extractUndecided");
       Long undecided = this.extractUndecided();
-      finish = System.currentTimeMillis();
-      timeElapsed = finish - start;
+      phase.stop();
       neo4jAL.logInfo(
           String.format(
-              "(%d ms) %d undecided nodes were extracted.", timeElapsed, undecided));
+              "(%d ms) %d undecided nodes were extracted.", phase.getWallTimeMs(), undecided));
 
       neo4jAL.logInfo(
           String.format(
               "After these trimming operations %d nodes are remaining.", candidatesIdList.size()));
 
       neo4jAL.logInfo("Grouping node by transaction similarity.");
-      start = System.currentTimeMillis();
+      phase = profiler.start("extractByTransactions");
       this.extractByTransactions();
-      finish = System.currentTimeMillis();
-      timeElapsed = finish - start;
-      neo4jAL.logInfo(String.format("(%d ms) Node were grouped.", timeElapsed));
+      phase.stop();
+      neo4jAL.logInfo(String.format("(%d ms) Node were grouped.", phase.getWallTimeMs()));
 
       neo4jAL.logInfo("Coloring nodes.");
-      start = System.currentTimeMillis();
+      phase = profiler.start("colorNodes");
       int numberNode = this.colorNodes(configuration.getCommunity());
-      finish = System.currentTimeMillis();
-      timeElapsed = finish - start;
-      neo4jAL.logInfo(String.format("(%d ms) %d Nodes were colored.", timeElapsed, numberNode));
+      phase.stop();
+      neo4jAL.logInfo(String.format("(%d ms) %d Nodes were colored.", phase.getWallTimeMs(), numberNode));
 
       neo4jAL.logInfo("Assign DrillDown property.");
-      start = System.currentTimeMillis();
+      phase = profiler.start("assignDrilldownNodes");
       assignDrilldownNodes();
-      finish = System.currentTimeMillis();
-      timeElapsed = finish - start;
-      neo4jAL.logInfo(String.format("(%d ms) Node's drilldown communities were reassigned..", timeElapsed));
+      phase.stop();
+      neo4jAL.logInfo(String.format("(%d ms) Node's drilldown communities were reassigned..", phase.getWallTimeMs()));
+      neo4jAL.logInfo(neo4jAL.getQueryRegistry().toString());
+
+      List<PhaseProfiler.Phase> report = profiler.getReport();
+      for (PhaseProfiler.Phase p : report) neo4jAL.logInfo(p.toString());
+      return report;
 
     } catch (Exception e) {
       neo4jAL.logError("Execution of the divideLevel failed.", e);
@@ -181,6 +294,23 @@ public class DivideController {
 
   }
 
+  /**
+   * Get the snapshot of the transactions in the application. It is loaded on first use.
+   *
+   * @return The snapshot of the transactions
+   * @throws Neo4jQueryException If the snapshot failed to load
+   */
+  private TransactionSnapshot getSnapshot() throws Neo4jQueryException {
+    if (snapshot == null) {
+      try {
+        snapshot = TransactionSnapshot.load(neo4jAL, application);
+      } catch (Neo4jBadRequestException e) {
+        throw new Neo4jQueryException("Failed to load the transactions", e, ERROR_CODE + "GSNA01");
+      }
+    }
+    return snapshot;
+  }
+
   /**
    * Find the level to divide in one specific application
    *
@@ -189,10 +319,8 @@ public class DivideController {
    * @throws Neo4jNoResult If no level exists with this name in the application.
    */
   private Node findLevel() throws Neo4jQueryException, Neo4jNoResult {
-    String req =
-        String.format(
-            "MATCH (l:Level5:`%s`) WHERE l.Name=$levelName RETURN l as node LIMIT 1", application);
-    Map<String, Object> params = Map.of("levelName", levelName);
+    String req = neo4jAL.getQuery(FIND_LEVEL_QUERY);
+    Map<String, Object> params = Map.of("levelName", levelName, "application", application);
 
     Result res = neo4jAL.executeQuery(req, params);
     // Throw an error if no level was found
@@ -218,14 +346,8 @@ public class DivideController {
     if (level == null) return this.candidatesIdList; // Level must not be null
 
     // Retrieve all the node under the level and reset the community property
-    String matchNodes =
-        String.format(
-            "MATCH (l:Level5:`%1$s`)-[]->(o:Object:`%1$s`) "
-                + "WHERE ID(l)=$idLevel "
-                + "REMOVE o.%2$s "
-                + "RETURN ID(o) as idNode;",
-            application, configuration.getCommunity());
-    Map<String, Object> params = Map.of("idLevel", level.getId());
+    String matchNodes = neo4jAL.getQuery(LEVEL_NODES_QUERY, configuration.getCommunity());
+    Map<String, Object> params = Map.of("idLevel", level.getId(), "application", application);
 
     Result res = neo4jAL.executeQuery(matchNodes, params);
 
@@ -250,13 +372,12 @@ public class DivideController {
     List<Node> nodesTrimmed = new ArrayList<>();
 
     // Retrieve all the node under the level
-    String matchNodes =
-        String.format("MATCH (l:Level5:`%1$s`)-[]->(o:Object:`%1$s`) "
-                    + "WHERE ID(l)=$idLevel AND NOT (o)-[]-(:Object) "
-                    + "SET o.Tags = CASE WHEN o.Tags IS NULL THEN [($levelTag+o.Level+' isolated')] "
-                    + "ELSE [ x IN o.Tags WHERE NOT x CONTAINS $levelTag ] + ($levelTag+o.Level+' isolated') END "
-                    + "RETURN o as node", application);
-    Map<String, Object> params = Map.of("idLevel", level.getId(), "levelTag", configuration.getDemeterLevelTag());
+    String matchNodes = neo4jAL.getQuery(ISOLATED_NODES_QUERY);
+    Map<String, Object> params =
+        Map.of(
+            "idLevel", level.getId(),
+            "levelTag", configuration.getDemeterLevelTag(),
+            "application", application);
     Result res = neo4jAL.executeQuery(matchNodes, params);
 
     while (res.hasNext()) {
@@ -286,13 +407,8 @@ public class DivideController {
     Map<Node, List<Node>> parentUndecided = new HashMap<>();
 
     // Retrieve all the node under the level
-    String matchNodes =
-        String.format(
-            "MATCH (l:Level5:`%1$s`)-[]->(o:Object:`%1$s`)-[]-(:Object:`%1$s`)<-[]-(otherL:Level5:`%1$s`) "
-                + "WHERE ID(l)=$idLevel AND ID(l)<>ID(otherL)"
-                + "RETURN DISTINCT otherL as otherLevel, o as node",
-            application);
-    Map<String, Object> params = Map.of("idLevel", level.getId());
+    String matchNodes = neo4jAL.getQuery(UNDECIDED_NODES_QUERY);
+    Map<String, Object> params = Map.of("idLevel", level.getId(), "application", application);
 
     Result res = neo4jAL.executeQuery(matchNodes, params);
     // Get a map of each neighbors levels with their interaction list
@@ -308,6 +424,14 @@ public class DivideController {
       parentUndecided.get(parent).add(node);
     }
 
+    // Sorted ids of the nodes of each level, to compare them in linear time
+    Map<Node, long[]> parentIds = new HashMap<>();
+    for (Map.Entry<Node, List<Node>> en : parentUndecided.entrySet()) {
+      long[] ids = en.getValue().stream().mapToLong(Node::getId).toArray();
+      Arrays.sort(ids);
+      parentIds.put(en.getKey(), ids);
+    }
+
     Set<SimClass> simList = new HashSet<>();
     // Get a map of the interactions
     for (Map.Entry<Node, List<Node>> en : parentUndecided.entrySet()) {
@@ -315,10 +439,8 @@ public class DivideController {
         if (en.equals(enIt)) continue; // skip the current element investigated
 
         // Compare element in both list
-        List<Node> differences = new ArrayList<>(en.getValue());
-        differences.removeAll(enIt.getValue());
         Double simPercentage =
-            (double) (en.getValue().size() - differences.size()) / (double) en.getValue().size();
+            SortedSets.containment(parentIds.get(en.getKey()), parentIds.get(enIt.getKey()));
         Long size = (long) en.getValue().size() + (long) enIt.getValue().size();
 
         // Create a similarity class and add it to the set
@@ -400,114 +522,100 @@ public class DivideController {
     // Group the objects by communities
 
 
-    // Apply tags on objects
+    // Apply tags on objects. A node in several communities keeps all their tags, the last first
     Long numFlagged  = 0L;
+    Map<Node, List<String>> nodeTags = new LinkedHashMap<>();
     for (Map.Entry<String, Set<Node>> en : communityNodeMap.entrySet()) {
       String toApplyTag = en.getKey();
 
-      List<String> groupTags;
       for (Node n : en.getValue()) {
-
-        // check if tags exists
-        groupTags = List.of(toApplyTag);
-        if (n.hasProperty("Tags")) {
-          try {
-            List<String> tags = (List<String>) n.getProperty("Tags");
-            groupTags.addAll(tags);
-          } catch (Exception ignored) {
-            // Skipping this step, since the Tag property is apparently poorly formatted
-          }
-        }
-
-        n.setProperty("Tags", groupTags.toArray(new String[0]));
+        nodeTags.computeIfAbsent(n, DivideController::getTags).add(0, toApplyTag);
       }
       numFlagged += en.getValue().size();
     }
 
+    BatchWriter writer = newBatchWriter();
+    for (Map.Entry<Node, List<String>> en : nodeTags.entrySet()) {
+      writer.setStringArray(en.getKey().getId(), TAGS_PROPERTY, en.getValue().toArray(new String[0]));
+    }
+    writer.flush();
+
     return numFlagged;
   }
 
   /**
    * Perform  a label propagation on the Transactions in on application. And flag the transactions with a community id
+   * The propagation runs in memory on the similarity links, and the labels are written back at the end.
    * @throws Neo4jQueryException
    */
   private void transactionLabelPropagation() throws Neo4jQueryException {
     neo4jAL.logInfo("Starting the Label Propagation on transaction..");
 
+    // Small transaction are ignored
+    TransactionSnapshot transactions = getSnapshot().filterBySize(MIN_TRANSACTION_SIZE);
+
     // Link transactions by similarity
     neo4jAL.logInfo("Grouping Transaction by similarity ( this step can take a while )...");
-    this.linkTransactions();
+    InvertedIndexSimilarity.SimilarityLinks links = this.linkTransactions(transactions);
 
-    String reqTransaction =
-            String.format(
-                    "MATCH (t:Transaction:`%1$s`)-[:Contains]->(o:Object:`%1$s`) "
-                            + "WITH t, COLLECT(o) as objects "
-                            + "WHERE SIZE(objects) > 10 "
-                            + "RETURN DISTINCT t as transaction",
-                    application);
-    Result res = neo4jAL.executeQuery(reqTransaction);
-
-    // Extract the result of the transaction query
-    // And assign a unique label
-    Long label = 0L;
-    List<Node> transactionList = new ArrayList<>();
-    while (res.hasNext()) {
-      Node n = (Node) res.next().get("transaction");
-      // Assign label + increment to get an unique label
-      n.setProperty(configuration.getTransactionCommunity(), label);
-      label++;
-      this.transactionIdList.add(n.getId());
+    // Assign a unique label to each transaction
+    int numTransactions = transactions.getNumTransactions();
+    for (int t = 0; t < numTransactions; t++) {
+      this.transactionIdList.add(transactions.getTransactionId(t));
     }
 
     neo4jAL.logInfo(
             String.format(
                     "%d Transactions have been discovered ( with filtering ) and %d labels applied.",
-                    this.transactionIdList.size(), label));
+                    numTransactions, numTransactions));
 
     // Propagate the labels
-    int modifications = 0;
+    long[] labels;
     int maxIteration = configuration.getLabelPropagationIteration();
+    try (LabelPropagation propagation = LabelPropagation.fromLinks(numTransactions, links, concurrency)) {
+      for (int actualIt = 0; actualIt < maxIteration; actualIt++) {
+        int modifications = propagation.iterate();
 
-    // Parse the nodes and compute the next label of the node.
-    for (int actualIt = 0; actualIt < maxIteration; actualIt++) {
-
-      // New results are stored in a map to avoid changing an iteration while it's running
-      Map<Node, Long> nodeLabelMap = new HashMap<>();
-      // Parse the node and get the new label for each node
-      for (Long n : this.transactionIdList) {
-        // Get the most present label around
-        Node transactionNode = neo4jAL.getNodeById(n);
-        if(transactionNode == null) continue;
-
-        Long newLabel =
-                this.getNeighborsLabel(
-                        n,
-                        "Transaction",
-                        Direction.INCOMING,
-                        configuration.getSimilarityLink(),
-                        configuration.getWeightProperty(),
-                        configuration.getTransactionCommunity());
-        Long lastLabel = (Long) transactionNode.getProperty(configuration.getTransactionCommunity());
-
-        if (newLabel == null) continue;
-        if (!newLabel.equals(lastLabel))
-          modifications++; // count the modification during this iteration
-        // Reassign the node
-
-        nodeLabelMap.put(transactionNode, newLabel);
-      }
+        neo4jAL.logInfo(
+                String.format(
+                        "Iterations %d on %d (max) - Modifications : %d ",
+                        actualIt, maxIteration, modifications));
 
-      // Reassign the correct label
-      for (Map.Entry<Node, Long> en : nodeLabelMap.entrySet()) {
-        en.getKey().setProperty(configuration.getTransactionCommunity(), en.getValue());
+        // Stop on convergence
+        if (modifications == 0) break;
       }
+      labels = propagation.getLabels();
+    }
 
-      neo4jAL.logInfo(
-              String.format(
-                      "Iterations %d on %d (max) - Modifications : %d ",
-                      actualIt, maxIteration, modifications));
+    // Write the labels
+    this.transactionLabels = labels;
+    BatchWriter writer = newBatchWriter();
+    for (int t = 0; t < numTransactions; t++) {
+      writer.setLong(transactions.getTransactionId(t), configuration.getTransactionCommunity(), labels[t]);
     }
+    writer.flush();
+  }
+
+  /**
+   * Get the tags already set on a node
+   *
+   * @param node Node
+   * @return A modifiable list of the tags, empty if the property is missing or poorly formatted
+   */
+  private static List<String> getTags(Node node) {
+    List<String> tags = new ArrayList<>();
+    Object property = node.getProperty(TAGS_PROPERTY, null);
+    if (property instanceof String[]) tags.addAll(Arrays.asList((String[]) property));
+    return tags;
+  }
 
+  /**
+   * Create a writer batching the property updates
+   *
+   * @return The writer
+   */
+  private BatchWriter newBatchWriter() {
+    return new BatchWriter(neo4jAL, configuration.getWriteBatchSize());
   }
 
   /**
@@ -518,54 +626,45 @@ public class DivideController {
   private void extractByTransactions() throws Neo4jQueryException {
 
     // Display the results
-    Map<Long, List<Node>> communityResults = new HashMap<>();
-    for (Long idTransaction : this.transactionIdList) {
-      Node n = neo4jAL.getNodeById(idTransaction);
-      if(n == null) continue;
-
-      Long lastLabel = (Long) n.getProperty(configuration.getTransactionCommunity());
-
-      if (!communityResults.containsKey(lastLabel))
-        communityResults.put(lastLabel, new ArrayList<>());
-      communityResults.get(lastLabel).add(n);
-    }
+    Map<Long, Integer> communitySizes = new HashMap<>();
+    for (long label : transactionLabels) communitySizes.merge(label, 1, Integer::sum);
 
     // Display the map of community
     neo4jAL.logInfo("Community map :");
-    for (Map.Entry<Long, List<Node>> en : communityResults.entrySet()) {
+    for (Map.Entry<Long, Integer> en : communitySizes.entrySet()) {
       neo4jAL.logInfo(
               String.format(
                       "Id of the community : %d , size of the community : %d",
-                      en.getKey(), en.getValue().size()));
+                      en.getKey(), en.getValue()));
     }
 
-    // Merge nodes under the community
+    // Match the objects in the transactions with the specific level, in one query
     neo4jAL.logInfo("Assign new labels to objects");
-    for (Long transactionId : transactionIdList) {
-      Node transaction = neo4jAL.getNodeById(transactionId);
-      if(transaction == null) continue;
+    String req = neo4jAL.getQuery(TRANSACTION_OBJECTS_QUERY);
+    long[] transactionIds = transactionIdList.stream().mapToLong(Long::longValue).toArray();
+    Map<String, Object> params =
+        Map.of("transactions", transactionIds, "levelName", level.getProperty("Name"));
 
-      // Match  the objects in the transaction with the specific level
-      Long transactionLabel = Neo4jTypeManager.getAsLong(transaction, configuration.getTransactionCommunity(), null);
-      if (transactionLabel == null) continue;
+    List<List<?>> objectsByTransaction = new ArrayList<>(Collections.nCopies(transactionIds.length, null));
+    Result res = neo4jAL.executeQuery(req, params);
+    while (res.hasNext()) {
+      Map<String, Object> row = res.next();
+      objectsByTransaction.set(((Long) row.get("index")).intValue(), (List<?>) row.get("objects"));
+    }
 
-      String req =
-          String.format(
-              "MATCH (t:Transaction)-[]->(o:Object) "
-                  + "WHERE ID(t)=$idTransaction AND o.Level=$levelName  "
-                  + "SET o.%s=$newLabel ",
-              configuration.getCommunity());
-      Map<String, Object> params =
-          Map.of(
-              "idTransaction",
-              transaction.getId(),
-              "levelName",
-              level.getProperty("Name"),
-              "newLabel",
-              transactionLabel);
-      neo4jAL.executeQuery(req, params);
+    // Objects in several transactions take the label of the last one
+    Map<Long, Long> objectLabels = new LinkedHashMap<>();
+    for (int t = 0; t < transactionIds.length; t++) {
+      List<?> objects = objectsByTransaction.get(t);
+      if (objects == null) continue;
+      for (Object idObject : objects) objectLabels.put((Long) idObject, transactionLabels[t]);
     }
 
+    BatchWriter writer = newBatchWriter();
+    for (Map.Entry<Long, Long> en : objectLabels.entrySet()) {
+      writer.setLong(en.getKey(), configuration.getCommunity(), en.getValue());
+    }
+    writer.flush();
   }
 
   /**
@@ -583,9 +682,7 @@ public class DivideController {
     Long numNode = 0L;
 
     // Initialize all nodes to DEFAULT
-    String iniReq = String.format("MATCH (l:Level5:%1$s)-[]->(o:Object) " +
-                "WHERE ID(l)=$idLevel " +
-                "SET o.%2$s=$defaultValue", application, drillDownProperty);
+    String iniReq = neo4jAL.getQuery(RESET_DRILLDOWN_QUERY, drillDownProperty);
     Map<String, Object> iniParams =
             Map.of(
                     "defaultValue",
@@ -599,62 +696,52 @@ public class DivideController {
     // Transactions List
     int success = 0, errors = 0;
     Map<Long, Set<Long>> communityMap = new HashMap<>();
-    for(Long transactionId : this.transactionIdList) {
-
-      String req =
-              String.format("MATCH (t:Transaction)-[]->(o:Object)<-[]-(l:Level5) " +
-                      "WHERE ID(t)=$idTransaction AND ID(l)=$idLevel " +
-                      "RETURN t.%1$s as comId, COLLECT(DISTINCT ID(o)) as objectsID", configuration.getTransactionCommunity(), drillDownProperty);
 
+    String req = neo4jAL.getQuery(DRILLDOWN_COMMUNITIES_QUERY, configuration.getTransactionCommunity());
 
-      Map<String, Object> params =
-              Map.of(
-                      "idTransaction",
-                      transactionId,
-                      "idLevel",
-                      level.getId());
-
+    Map<String, Object> params =
+            Map.of(
+                    "transactions",
+                    transactionIdList,
+                    "idLevel",
+                    level.getId());
 
-      Result res = neo4jAL.executeQuery(req, params);
-      while (res.hasNext()) {
-        try {
-          Map<String, Object> r = res.next();
+    Result res = neo4jAL.executeQuery(req, params);
+    while (res.hasNext()) {
+      try {
+        Map<String, Object> r = res.next();
 
-          // Verify that the community Id is a long, otherwise skip it
-          Long idCom =  (Long) r.get("comId");
+        // Verify that the community Id is a long, otherwise skip it
+        Long idCom =  (Long) r.get("comId");
 
-          if(!communityMap.containsKey(idCom)) communityMap.put(idCom, new HashSet<>());
-          communityMap.get(idCom).addAll((List<Long>) r.get("objectsID"));
-          success++;
-        } catch (Exception ignored) {
-          errors++; // Ignore but count errors
-          continue;
-        }
+        if(!communityMap.containsKey(idCom)) communityMap.put(idCom, new HashSet<>());
+        communityMap.get(idCom).addAll((List<Long>) r.get("objectsID"));
+        success++;
+      } catch (Exception ignored) {
+        errors++; // Ignore but count errors
       }
     }
 
     neo4jAL.logInfo(String.format("Drilldown communities identified. %d successfully discovered, %d error during processing.", success, errors));
 
     // Treat community map, and assign drilldown
-    for(Map.Entry<Long, Set<Long>> en : communityMap.entrySet()) {
+    BatchWriter writer = newBatchWriter();
+    for (Map.Entry<Long, Set<Long>> en : communityMap.entrySet()) {
       String drillDownProp = defaultGroup;
 
-      if(en.getValue().size() > minCliqueSize) {
+      if (en.getValue().size() > minCliqueSize) {
         // If the size of the clique is sufficient flag
         // Else apply default property
         drillDownProp = String.format("Cluster_%d", en.getKey());
       }
 
-      for(Long idN: en.getValue()) {
+      for (Long idN : en.getValue()) {
         // Apply the new Drilldown prop on the nodes
-        Node n = neo4jAL.getNodeById(idN);
-        if(n == null) continue;
-
-        n.setProperty(drillDownProperty, drillDownProp);
+        writer.setString(idN, drillDownProperty, drillDownProp);
         numNode++;
       }
-
     }
+    writer.flush();
 
     neo4jAL.logInfo(String.format("%d nodes drilldown property have been changed.", numNode));
   }
@@ -669,41 +756,38 @@ public class DivideController {
     Map<String, Object> params = Map.of("idNode", level.getId());
 
     // Reset the color of the current level
-    String req =
-        String.format(
-            "MATCH (l:Level5)-[]->(o:Object) WHERE ID(l)=$idNode "
-                + "SET o.Color='rgb(182, 0, 255)'");
+    String req = neo4jAL.getQuery(RESET_COLOR_QUERY);
     neo4jAL.executeQuery(req, params);
 
     // Get the nodes with the community property
-    req =
-        String.format(
-            "MATCH (l:Level5)-[]->(o:Object) WHERE ID(l)=$idNode AND EXISTS(o.%1$s) "
-                + "RETURN DISTINCT o as node",
-            configuration.getCommunity());
+    req = neo4jAL.getQuery(NODE_COMMUNITIES_QUERY, configuration.getCommunity());
 
-    // Get all community
+    // Get all community. A community takes the color of the rank of its last node
     Result res = neo4jAL.executeQuery(req, params);
+    List<Long> nodes = new ArrayList<>();
+    List<Long> communities = new ArrayList<>();
+    Map<Long, Integer> lastRank = new HashMap<>();
     int it = 0;
     while (res.hasNext()) {
-      Node n = (Node) res.next().get("node");
-
-      Long comId = Neo4jTypeManager.getAsLong(n, configuration.getCommunity(), null);
-      if (comId == null) continue; // Ignore the node if the community property isn't valid
-
-      Color act = COLOR_TABLE[it % COLOR_TABLE.length];
+      Map<String, Object> row = res.next();
+      Object comObject = row.get("comId");
+      if (!(comObject instanceof Number)) continue; // Ignore the node if the community property isn't valid
+
+      Long comId = ((Number) comObject).longValue();
+      nodes.add((Long) row.get("idNode"));
+      communities.add(comId);
+      lastRank.put(comId, it);
       it++;
+    }
 
-      // Generate and apply color
+    // Generate and apply color
+    BatchWriter writer = newBatchWriter();
+    for (int i = 0; i < nodes.size(); i++) {
+      Color act = COLOR_TABLE[lastRank.get(communities.get(i)) % COLOR_TABLE.length];
       String color = String.format("rgb(%d, %d, %d)", act.getRed(), act.getGreen(), act.getBlue());
-      String reqCol =
-          String.format(
-              "MATCH (l:Level5)-[]->(o:Object) WHERE ID(l)=$idNode AND o.%1$s=$comId "
-                  + "SET o.Color=$color ",
-                  configuration.getCommunity());
-      params = Map.of("idNode", level.getId(), "color", color, "comId", comId);
-      neo4jAL.executeQuery(reqCol, params);
+      writer.setString(nodes.get(i), "Color", color);
     }
+    writer.flush();
 
     return it;
   }
@@ -733,186 +817,141 @@ public class DivideController {
   }
 
   /**
-   * Links the transactions together based on their similarity
+   * Links the transactions together based on their similarity. The pairs of transactions are
+   * discovered through an object to transaction inverted index, so only transactions sharing
+   * objects are compared. The links are then created in bulk.
+   * @param transactions Transactions to link
+   * @return The links created, using the indexes of the transactions
    * @throws Neo4jQueryException
    */
-  private void linkTransactions() throws Neo4jQueryException {
+  private InvertedIndexSimilarity.SimilarityLinks linkTransactions(TransactionSnapshot transactions)
+      throws Neo4jQueryException {
     long start = System.currentTimeMillis();
-    // Remove all previous links between transactions
-    String req =
-        String.format(
-            "MATCH (n:Transaction:`%s`)-[r:%s]-() DELETE r", application, configuration.getSimilarityLink());
-    neo4jAL.executeQuery(req);
 
-    // Get a map of the transactions
-    // Small transaction are ignored
-    String reqLink =
+    // Compute the similarity on shared objects only
+    InvertedIndexSimilarity similarity = new InvertedIndexSimilarity(transactions);
+    InvertedIndexSimilarity.SimilarityLinks links = similarity.computeLinks();
+    neo4jAL.logInfo(
         String.format(
-            "MATCH (t:Transaction:`%1$s`)-[:Contains]->(o:Object:`%1$s`) "
-                + "WITH t, COLLECT(o) as objects "
-                + "WHERE SIZE(objects) > 10 "
-                + "UNWIND objects as o "
-                + "RETURN DISTINCT t as transaction, ID(o) as IdNode",
-            application);
-    Result result = neo4jAL.executeQuery(reqLink);
-
-    Map<Node, List<Long>> transactionMap = new HashMap<>();
-    while (result.hasNext()) {
-      Map<String, Object> r = result.next();
-      Node transaction = (Node) r.get("transaction");
-      Long n = (Long) r.get("IdNode");
-
-      if (!transactionMap.containsKey(transaction))
-        transactionMap.put(transaction, new ArrayList<>());
-      transactionMap.get(transaction).add(n);
-    }
-
-    // Counter to avoid waiting an eternity without logging
-    int stepMax = transactionMap.size() * transactionMap.size();
-    int step = 0;
-
-    // Merge transaction by similarity
-    for (Map.Entry<Node, List<Long>> en : transactionMap.entrySet()) {
-      for (Map.Entry<Node, List<Long>> enIt : transactionMap.entrySet()) {
-
-        step++;
-        if (step % 10000 == 0)
-          neo4jAL.logInfo(String.format("Treating transaction %d on %d.", step, stepMax));
-
-        // check if the transaction has a link to other in the application
-        Node source = en.getKey();
-        Node dest = enIt.getKey();
-
-        // If treating the same node skip this step
-        if (source.getId() == dest.getId()) continue;
-
-        //
-        boolean existLink = false;
-        // Check relationships
-        for (Relationship rel :
-            source.getRelationships(
-                Direction.OUTGOING, RelationshipType.withName(configuration.getSimilarityLink()))) {
-          Node otherNode = rel.getOtherNode(source);
-          if (otherNode.getId() == dest.getId()) existLink = true;
-        }
-
-        // If a link exist skip
-        if (existLink) continue;
+            "%d links identified between %d transactions.",
+            links.size(), transactions.getNumTransactions()));
 
-        // Else check common nodes
-        List<Long> common = new ArrayList<>(en.getValue());
-        common.removeAll(enIt.getValue());
-
-        // Get the percentage of similarity
-        long commonNode = (long) en.getValue().size() - (long) common.size();
-        double percentage = exp((double) commonNode / (double) common.size());
-
-        // If no nodes are shared, skip it
-        if (percentage == 0 || Double.isInfinite(percentage)) continue;
-
-        Relationship rel =
-            source.createRelationshipTo(dest, RelationshipType.withName(configuration.getSimilarityLink()));
-        rel.setProperty(configuration.getWeightProperty(), percentage);
-      }
+    if (commitBatchSize > 0) {
+      this.writeLinksInChunks(transactions, links);
+    } else {
+      this.writeLinks(transactions, links);
     }
 
     long finish = System.currentTimeMillis();
     long timeElapsed = finish - start;
 
     neo4jAL.logInfo(String.format("( %d ms ) Transactions were linked.", timeElapsed));
+    return links;
   }
 
   /**
-   * Get the maximum label between the neighbors of one specific node
+   * Replace the similarity links in the transaction of the procedure
    *
-   * @param idNode Node ID to explore
-   * @param label Label of the nodes
-   * @param direction Direction of the relationship
-   * @param relationshipName Name of the relationship
-   * @param weight Weight property
-   * @param labelProperty Name of the property in charge of the label (Label of the label
-   *     propagation not of neo4j)
-   * @return The label most present in the values
+   * @param transactions Transactions linked
+   * @param links Links to create
    * @throws Neo4jQueryException
    */
-  private Long getNeighborsLabel(
-      Long idNode,
-      String label,
-      Direction direction,
-      String relationshipName,
-      String weight,
-      String labelProperty)
+  private void writeLinks(
+      TransactionSnapshot transactions, InvertedIndexSimilarity.SimilarityLinks links)
       throws Neo4jQueryException {
+    // Remove all previous links between transactions
+    String req = neo4jAL.getQuery(DELETE_LINKS_QUERY, application, configuration.getSimilarityLink());
+    neo4jAL.executeQuery(req);
 
+    // Create the links in bulk
+    String reqCreate =
+        neo4jAL.getQuery(
+            CREATE_LINKS_QUERY, configuration.getSimilarityLink(), configuration.getWeightProperty());
 
-    Node n = neo4jAL.getNodeById(idNode);
-    if (n == null) {
-      throw new Neo4jQueryException(String.format("Failed to retrieve nod with ID: %d", idNode), "Get by ID", "DIVCxGNEI01");
-    }
-
-    if (!relationshipName.isBlank()) {
-      relationshipName = ":" + relationshipName;
-    }
-
-    // Change the direction of the relationship depending on the parameter
-    String directionAsReq = String.format("-[r%s]->", relationshipName);
-    switch (direction) {
-      case BOTH:
-        directionAsReq = String.format("-[r%s]-", relationshipName);
-        break;
-      case INCOMING:
-        directionAsReq = String.format("<-[r%s]-", relationshipName);
-        break;
-      case OUTGOING:
-        directionAsReq = String.format("-[r%s]->", relationshipName);
-        break;
-    }
-
-    // Retrieve all the neighbors of one specific node
-    String req =
-        String.format(
-            "MATCH (t:`%1$s`)%2$s(other:`%1$s`) "
-                + "WHERE ID(t)=$idNode AND ID(t)<>ID(other) "
-                + "RETURN DISTINCT other as node, r.%3$s as weight",
-            label, directionAsReq, weight);
-    Map<String, Object> params = Map.of("idNode", n.getId());
-    Result res = neo4jAL.executeQuery(req, params);
-
-    Map<Long, Long> labelMap = new HashMap<>();
+    List<Map<String, Object>> batch = new ArrayList<>(LINK_BATCH_SIZE);
+    for (int i = 0; i < links.size(); i++) {
+      batch.add(
+          Map.of(
+              "source", transactions.getTransactionId(links.getSource(i)),
+              "dest", transactions.getTransactionId(links.getDestination(i)),
+              "weight", links.getWeight(i)));
 
-    // Iterate over the results and store the weights
-    while (res.hasNext()) {
-      Map<String, Object> r = res.next();
-      Long value;
-      try {
-        value = (Long) r.get("weight");
-      } catch (Exception e) {
-        value = ((Double) r.get("weight")).longValue();
+      if (batch.size() == LINK_BATCH_SIZE || i == links.size() - 1) {
+        neo4jAL.executeQuery(reqCreate, Map.of("links", batch));
+        batch = new ArrayList<>(LINK_BATCH_SIZE);
       }
-
-      Node node = (Node) r.get("node");
-      Long labelTransaction = (Long) node.getProperty(labelProperty);
-
-      if (!labelMap.containsKey(labelTransaction))
-        labelMap.put(labelTransaction, 0L); // If not exist initialize
-      labelMap.put(
-          labelTransaction,
-          labelMap.get(labelTransaction) + value); // if exist add the value to the label
     }
+  }
 
-    // Get the highest value in the map and return the key
-    Long maxLabel = null;
-    long maxValue = 0L;
-    for (Map.Entry<Long, Long> en : labelMap.entrySet()) {
-      if (maxValue < en.getValue()) {
-        maxValue = en.getValue();
-        maxLabel = en.getKey();
-      }
+  /**
+   * Replace the similarity links in inner transactions of <code>commitBatchSize</code> links, to keep the state of
+   * each transaction small. The operation can be resumed: once all the links of a source transaction are committed,
+   * the source is marked with the fingerprint of the snapshot. A new run on the same snapshot keeps the links of the
+   * marked sources and only rewrites the others.
+   *
+   * <p>Only relationships and Transaction nodes are modified, which the transaction of the procedure doesn't lock
+   * before this step.
+   *
+   * @param transactions Transactions linked
+   * @param links Links to create, sorted by source
+   * @throws Neo4jQueryException
+   */
+  private void writeLinksInChunks(
+      TransactionSnapshot transactions, InvertedIndexSimilarity.SimilarityLinks links)
+      throws Neo4jQueryException {
+    long fingerprint =
+        31 * transactions.fingerprint()
+            + Objects.hash(configuration.getSimilarityLink(), configuration.getWeightProperty());
+
+    // Remove the links of the sources not completed with this snapshot
+    String reqDelete =
+        neo4jAL.getQuery(
+            DELETE_OUTDATED_LINKS_QUERY,
+            application,
+            configuration.getSimilarityLink(),
+            LINK_FINGERPRINT_PROPERTY);
+    long deleted =
+        neo4jAL.executeUntilDone(
+            reqDelete, Map.of("fingerprint", fingerprint, "limit", commitBatchSize));
+
+    // Sources already completed by a previous run
+    String reqDone = neo4jAL.getQuery(LINKED_SOURCES_QUERY, application, LINK_FINGERPRINT_PROPERTY);
+    Set<Long> done = new HashSet<>();
+    Result res = neo4jAL.executeQuery(reqDone, Map.of("fingerprint", fingerprint));
+    while (res.hasNext()) done.add((Long) res.next().get("id"));
+
+    // The source is marked with the last of its links
+    List<Map<String, Object>> remaining = new ArrayList<>();
+    for (int i = 0; i < links.size(); i++) {
+      long source = transactions.getTransactionId(links.getSource(i));
+      if (done.contains(source)) continue;
+
+      boolean last = i == links.size() - 1 || links.getSource(i + 1) != links.getSource(i);
+      remaining.add(
+          Map.of(
+              "source", source,
+              "dest", transactions.getTransactionId(links.getDestination(i)),
+              "weight", links.getWeight(i),
+              "last", last));
     }
 
-    return maxLabel;
+    String reqCreate =
+        neo4jAL.getQuery(
+            CREATE_MARKED_LINKS_QUERY,
+            configuration.getSimilarityLink(),
+            configuration.getWeightProperty(),
+            LINK_FINGERPRINT_PROPERTY);
+    int commits =
+        neo4jAL.executeInChunks(
+            reqCreate, "links", remaining, Map.of("fingerprint", fingerprint), commitBatchSize);
+
+    neo4jAL.logInfo(
+        String.format(
+            "%d outdated links removed, %d sources already linked, %d links created in %d transactions.",
+            deleted, done.size(), remaining.size(), commits));
   }
 
+
   class SimClass {
     Node level1;
     Node level2;
@@ -1,26 +1,104 @@
 package com.castsoftware.caesar.controllers;
 
+import com.castsoftware.caesar.configuration.DetectionConfiguration;
+import com.castsoftware.caesar.database.BatchWriter;
 import com.castsoftware.caesar.database.Neo4jAL;
+import com.castsoftware.caesar.entities.transactions.TableSimilarity;
+import com.castsoftware.caesar.entities.transactions.TransactionSimilarity;
+import com.castsoftware.caesar.exceptions.file.FileCorruptedException;
+import com.castsoftware.caesar.exceptions.file.FileIOException;
+import com.castsoftware.caesar.exceptions.file.MissingFileException;
+import com.castsoftware.caesar.exceptions.neo4j.Neo4jBadRequestException;
 import com.castsoftware.caesar.exceptions.neo4j.Neo4jQueryException;
+import com.castsoftware.caesar.exceptions.workspace.MissingWorkspaceException;
+import com.castsoftware.caesar.sdk.TransactionSnapshot;
+import com.castsoftware.caesar.services.similarity.MinHashIndex;
+import com.castsoftware.caesar.services.similarity.SimilarityResultWriter;
+import com.castsoftware.caesar.services.similarity.SortedSets;
+import com.castsoftware.caesar.services.similarity.TableIndex;
+import com.castsoftware.caesar.workspace.Workspace;
 import org.neo4j.graphdb.Result;
 
-import java.io.BufferedWriter;
-import java.io.FileWriter;
 import java.io.IOException;
-import java.util.ArrayList;
-import java.util.List;
-import java.util.Map;
+import java.nio.file.Path;
+import java.util.*;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.concurrent.atomic.AtomicInteger;
 
 public class SimilarityController {
 
   private static final String ERROR_CODE = "DIVCx";
-  private static final String PREFIX_SIMILAR = "\\SimilarTransaction_";
-  private static final String PREFIX_DIFFERENT = "\\DifferentTransaction_";
+
+  private static final String STORED_STATES_QUERY =
+      Neo4jAL.registerQuery(
+          "similarity.storedStates",
+          "MATCH (t:Transaction:`%1$s`) "
+              + "RETURN ID(t) as id, t.`%2$s` as hash, t.`%3$s` as topK, t.`%4$s` as results");
+  private static final String STORED_HASHES_QUERY =
+      Neo4jAL.registerQuery(
+          "similarity.storedHashes",
+          "MATCH (t:Transaction:`%1$s`) WHERE t.`%2$s` IS NOT NULL "
+              + "RETURN ID(t) as id, t.`%2$s` as hash");
+  private static final String STORED_RESULTS_QUERY =
+      Neo4jAL.registerQuery(
+          "similarity.storedResults",
+          "MATCH (s:Transaction:`%1$s`)-[r:`%2$s`]->(t:Transaction:`%3$s`) "
+              + "RETURN ID(s) as source, ID(t) as target, r.Type as type, r.Rank as rank, "
+              + "r.ObjectSimilarity as objectSimilarity, r.DatabaseSimilarity as databaseSimilarity, "
+              + "r.`%4$s` as targetHash");
+  private static final String DELETE_RESULTS_QUERY =
+      Neo4jAL.registerQuery(
+          "similarity.deleteResults",
+          "UNWIND $sources as idSource "
+              + "MATCH (s:Transaction)-[r:`%1$s`]->(:Transaction:`%2$s`) WHERE ID(s)=idSource "
+              + "DELETE r");
+  private static final String CREATE_RESULTS_QUERY =
+      Neo4jAL.registerQuery(
+          "similarity.createResults",
+          "UNWIND $results as result "
+              + "MATCH (s:Transaction) WHERE ID(s)=result.source "
+              + "MATCH (t:Transaction) WHERE ID(t)=result.target "
+              + "CREATE (s)-[r:`%1$s`]->(t) "
+              + "SET r.Type=result.type, r.Rank=result.rank, "
+              + "r.ObjectSimilarity=result.objectSimilarity, "
+              + "r.DatabaseSimilarity=result.databaseSimilarity, "
+              + "r.`%2$s`=result.targetHash");
   private final Neo4jAL neo4jAL;
+  private final DetectionConfiguration configuration;
 
   private final String applicationSource;
   private final String applicationTarget;
   private final String outputPath;
+  private final boolean compress;
+  private final int concurrency;
+  private final int topK;
+  private final boolean refresh;
+
+  // Transactions of the source application, loaded once
+  private List<TransactionObjects> sourceTransactions;
+
+  // Transactions of the target application, with their MinHash signature
+  private List<TransactionObjects> targetTransactions;
+  private Map<String, Integer> targetByName;
+  private MinHashIndex targetIndex;
+
+  // Key of each object FullName and of each transaction name, shared by the two applications
+  private final Map<String, Integer> objectDictionary = new HashMap<>();
+  private final Map<String, Integer> transactionDictionary = new HashMap<>();
+
+  /**
+   * Constructor for the comparison of the databases only. The configuration isn't loaded, so the
+   * controller can be used in a read-only transaction.
+   *
+   * @param neo4jAL Neo4j Access Layer
+   * @param applicationSource Application source
+   * @param applicationTarget Application (Target) to compare
+   */
+  public SimilarityController(Neo4jAL neo4jAL, String applicationSource, String applicationTarget) {
+    this(neo4jAL, null, applicationSource, applicationTarget, "", false, 1, 1, false);
+  }
 
   /**
    * Constructor
@@ -32,349 +110,919 @@ public class SimilarityController {
    */
   public SimilarityController(
       Neo4jAL neo4jAL, String applicationSource, String applicationTarget, String outputPath)
-      throws IOException {
+      throws Exception {
+    this(neo4jAL, applicationSource, applicationTarget, outputPath, false, 1, 1);
+  }
+
+  /**
+   * Constructor
+   *
+   * @param neo4jAL Neo4j Access Layer
+   * @param applicationSource Application source
+   * @param applicationTarget Application (Target) to compare
+   * @param outputPath Folder of the results, or an empty path to skip the export
+   * @param compress Write the results in gzip files
+   * @param concurrency Number of workers comparing the transactions. With 0 or less, all the
+   *     available cores are used
+   * @param topK Number of closest targets returned for a transaction without a target of the same
+   *     name
+   */
+  public SimilarityController(
+      Neo4jAL neo4jAL,
+      String applicationSource,
+      String applicationTarget,
+      String outputPath,
+      boolean compress,
+      int concurrency,
+      int topK)
+      throws Exception {
+    this(neo4jAL, applicationSource, applicationTarget, outputPath, compress, concurrency, topK, false);
+  }
+
+  /**
+   * Constructor
+   *
+   * @param neo4jAL Neo4j Access Layer
+   * @param applicationSource Application source
+   * @param applicationTarget Application (Target) to compare
+   * @param outputPath Folder of the results, or an empty path to skip the export
+   * @param compress Write the results in gzip files
+   * @param concurrency Number of workers comparing the transactions. With 0 or less, all the
+   *     available cores are used
+   * @param topK Number of closest targets returned for a transaction without a target of the same
+   *     name
+   * @param refresh Only rescore the transactions whose objects changed since the previous refresh,
+   *     and store the results in the graph
+   */
+  public SimilarityController(
+      Neo4jAL neo4jAL,
+      String applicationSource,
+      String applicationTarget,
+      String outputPath,
+      boolean compress,
+      int concurrency,
+      int topK,
+      boolean refresh)
+      throws Exception {
+    this(
+        neo4jAL,
+        loadConfiguration(neo4jAL),
+        applicationSource,
+        applicationTarget,
+        outputPath,
+        compress,
+        concurrency,
+        topK,
+        refresh);
+  }
+
+  private SimilarityController(
+      Neo4jAL neo4jAL,
+      DetectionConfiguration configuration,
+      String applicationSource,
+      String applicationTarget,
+      String outputPath,
+      boolean compress,
+      int concurrency,
+      int topK,
+      boolean refresh) {
     this.neo4jAL = neo4jAL;
+    this.configuration = configuration;
     this.applicationSource = applicationSource;
     this.applicationTarget = applicationTarget;
     this.outputPath = outputPath;
-
-    String similarFileName = outputPath + SimilarityController.PREFIX_SIMILAR + ".csv";
-    // Different
-    String differentFileName =  outputPath + SimilarityController.PREFIX_DIFFERENT + ".csv";
-
-    List<String> mapList = List.of(similarFileName, differentFileName);
-    mapList.forEach(x -> {
-      try (FileWriter fw = new FileWriter(x, true); BufferedWriter bw = new BufferedWriter(fw)) {
-        // 			String toWrite = "Similar," + idTrans.toString() + "," + nameTrans + "," + delta + "," +
-        // similarities + "," + total + "," +similarTrans;
-        bw.write(
-                "Type, SourceId, SourceName, SourceSize, TargetId, TargetName, TargetSize, SimilarityObject, SimilarityDatabase");
-        bw.newLine();
-        bw.flush();
-      } catch (IOException ignored) {
-      }
-    });
-
+    this.compress = compress;
+    this.concurrency = concurrency > 0 ? concurrency : Runtime.getRuntime().availableProcessors();
+    this.topK = Math.max(1, topK);
+    this.refresh = refresh;
   }
 
-  /** Run logic */
-  public void run() throws Neo4jQueryException {
-    // Find transaction similarity
-    runTransactions();
+  /**
+   * Load the configuration of the workspace
+   *
+   * @param neo4jAL Neo4j Access Layer
+   * @return The configuration
+   * @throws Exception If the configuration is invalid
+   */
+  private static DetectionConfiguration loadConfiguration(Neo4jAL neo4jAL) throws Exception {
+    try {
+      return Workspace.getInstance(neo4jAL).getConfiguration();
+    } catch (Neo4jBadRequestException | IOException | Neo4jQueryException | MissingWorkspaceException | FileCorruptedException  | MissingFileException err) {
+      neo4jAL.logError("Failed to load the configuration.", err);
+      throw new Exception("Failed to instantiate the SimilarityController class due to a bad configuration.");
+    }
+  }
 
-    // Find database similarity
-    runDatabase();
+  /**
+   * Run logic. The similarity of the database is computed separately, by {@link #runDatabase()}.
+   *
+   * @return The similarity of each transaction of the source application
+   */
+  public List<TransactionSimilarity> run() throws Neo4jQueryException, FileIOException {
+    return runTransactions();
   }
 
-  /** Analyze the similarity of the transactions */
-  public void runTransactions() throws Neo4jQueryException {
+  /**
+   * Analyze the similarity of the transactions. The results are also written in the output folder,
+   * if any. In refresh mode, only the transactions changed since the previous refresh are rescored.
+   *
+   * @return The similarity of each transaction of the source application
+   */
+  public List<TransactionSimilarity> runTransactions() throws Neo4jQueryException, FileIOException {
+    if (configuration == null) {
+      throw new IllegalStateException("The comparison of the transactions requires the configuration.");
+    }
+    long start, end, elapsedTime;
 
-    // Parse the transactions
-    String reqTransaction =
+    // Index the target application once
+    start = System.currentTimeMillis();
+    indexTargetTransactions();
+    elapsedTime = System.currentTimeMillis() - start;
+    neo4jAL.logInfo(
         String.format(
-            "MATCH (t:Transaction:`%1$s`) "
-                + "RETURN DISTINCT ID(t) as idTrans, t.Name as transaction",
-            applicationSource);
+            "(%d ms) %d transactions of the application '%s' were indexed.",
+            elapsedTime, targetTransactions.size(), applicationTarget));
 
-    String reqFindByName =
-        String.format(
-            "MATCH (t:Transaction:`%1$s`) WHERE t.Name=$name "
-                + "RETURN DISTINCT ID(t) as idTrans, t.Name as transaction LIMIT 1",
-            applicationTarget);
+    if (sourceTransactions == null) sourceTransactions = getTransactionsObjects(applicationSource);
 
-    Result res = neo4jAL.executeQuery(reqTransaction);
+    List<TransactionSimilarity> results =
+        refresh ? refreshTransactions() : compareTransactions(sourceTransactions);
 
-    // Extract the result of the transaction query
-    Result resFinding = null;
-    Map<String, Object> params = null;
-    Map<String, Object> results = null;
+    // The file export is optional
+    if (outputPath != null && !outputPath.isBlank()) writeResults(results);
 
-    String fullName = null;
-    String fullNameTarget = null;
+    return results;
+  }
 
-    Long idTrans = null;
-    Long idTarget = null;
+  /**
+   * Write the results in the output folder
+   *
+   * @param results Results to write
+   * @throws FileIOException If the results couldn't be written
+   */
+  private void writeResults(List<TransactionSimilarity> results) throws FileIOException {
+    try (SimilarityResultWriter writer = new SimilarityResultWriter(Path.of(outputPath), compress)) {
+      for (TransactionSimilarity result : results) writer.write(result);
+    } catch (IOException e) {
+      throw new FileIOException(
+          "Failed to write the results", outputPath, e, ERROR_CODE + "RUNT01");
+    }
+  }
 
-    Double deltaPercentage = null;
-    long start, end, elapsedTime;
+  /**
+   * Find the target transaction of each source transaction
+   *
+   * @param sourceTransactions Transactions of the source application
+   * @return The similarity of each source transaction
+   */
+  private List<TransactionSimilarity> compareTransactions(
+      List<TransactionObjects> sourceTransactions) {
+    List<TransactionSimilarity> flattened = new ArrayList<>(sourceTransactions.size());
+    for (List<TransactionSimilarity> r : scoreTransactions(sourceTransactions)) flattened.addAll(r);
+    return flattened;
+  }
 
-    int it = 0;
+  /**
+   * Score the source transactions against the target. The source transactions are shared between
+   * the workers, and each result is stored at the index of its source, so the results keep the
+   * order of the sources whatever the number of workers.
+   *
+   * @param sourceTransactions Transactions of the source application
+   * @return The similarity of each source transaction, at the index of the source
+   */
+  private List<List<TransactionSimilarity>> scoreTransactions(
+      List<TransactionObjects> sourceTransactions) {
+    long start = System.currentTimeMillis();
+    int numSources = sourceTransactions.size();
+    List<List<TransactionSimilarity>> results = new ArrayList<>(Collections.nCopies(numSources, null));
+    AtomicInteger next = new AtomicInteger(0);
+
+    Runnable worker =
+        () -> {
+          int i;
+          while ((i = next.getAndIncrement()) < numSources) {
+            results.set(i, compareTransaction(sourceTransactions.get(i)));
+          }
+        };
+
+    if (concurrency <= 1) {
+      worker.run();
+    } else {
+      ForkJoinPool pool = new ForkJoinPool(concurrency);
+      try {
+        List<ForkJoinTask<?>> tasks = new ArrayList<>(concurrency);
+        for (int w = 0; w < concurrency; w++) tasks.add(pool.submit(worker));
+        for (ForkJoinTask<?> task : tasks) task.get();
+      } catch (InterruptedException e) {
+        Thread.currentThread().interrupt();
+        throw new IllegalStateException("The comparison of the transactions was interrupted.", e);
+      } catch (ExecutionException e) {
+        throw new IllegalStateException(
+            "A worker of the comparison of the transactions failed.", e.getCause());
+      } finally {
+        pool.shutdown();
+      }
+    }
 
-    while (res.hasNext()) {
-      it++;
+    neo4jAL.logInfo(
+        String.format(
+            "(%d ms) %d transactions of the application '%s' were compared with %d workers.",
+            System.currentTimeMillis() - start, numSources, applicationSource, concurrency));
+    return results;
+  }
 
-      start = System.currentTimeMillis();
+  /**
+   * Refresh the similarity of the transactions stored in the graph. The state of the comparison is
+   * kept for each pair of applications, in each direction: each source keeps the hash of its
+   * objects and the parameters of its last scoring against the target application, each target
+   * the hash of its objects seen by the last refresh from the source application, and each result
+   * the hash of its target when it was scored. A source is only rescored if its objects, its
+   * targets, or a target sharing one of its objects changed since; the results of the others are
+   * read back from the graph.
+   *
+   * <p>After a refresh, every source is up to date with the target, rescored or not, so the next
+   * refresh only has to look for the targets changed since this one.
+   *
+   * @return The similarity of each transaction of the source application
+   * @throws Neo4jQueryException If the previous results couldn't be read or the new ones written
+   */
+  private List<TransactionSimilarity> refreshTransactions() throws Neo4jQueryException {
+    long start = System.currentTimeMillis();
+    String link = configuration.getVersionSimilarityLink();
+    String hashProperty = configuration.getObjectsHashProperty();
+
+    // Properties of the comparison from the source to the target application
+    String sourceHashProperty = hashProperty + "_TO_" + applicationTarget;
+    String topKProperty = link + "_TO_" + applicationTarget + "_TOPK";
+    String resultsProperty = link + "_TO_" + applicationTarget + "_RESULTS";
+    String targetHashProperty = hashProperty + "_FROM_" + applicationSource;
+
+    Map<Long, StoredState> sourceStates =
+        getStoredStates(sourceHashProperty, topKProperty, resultsProperty);
+    Map<Long, Long> targetHashes = getStoredHashes(targetHashProperty);
+
+    // Targets new or changed since the previous refresh, and their objects
+    Map<Long, Integer> targetById = new HashMap<>();
+    Set<Long> changedTargets = new HashSet<>();
+    BitSet changedObjects = new BitSet(objectDictionary.size());
+    for (int i = 0; i < targetTransactions.size(); i++) {
+      TransactionObjects target = targetTransactions.get(i);
+      targetById.put(target.id, i);
+      Long stored = targetHashes.get(target.id);
+      if (stored == null || stored != target.objectsHash) {
+        changedTargets.add(target.id);
+        for (int key : target.objectKeys) changedObjects.set(key);
+      }
+    }
 
-      results = res.next();
-      fullName = (String) results.get("transaction");
-      idTrans = (Long) results.get("idTrans");
+    Map<Long, List<TransactionSimilarity>> storedResults = getStoredResults(targetById);
+
+    List<List<TransactionSimilarity>> results = new ArrayList<>(sourceTransactions.size());
+    List<Integer> rescored = new ArrayList<>();
+    for (int i = 0; i < sourceTransactions.size(); i++) {
+      TransactionObjects source = sourceTransactions.get(i);
+      List<TransactionSimilarity> stored =
+          getStoredSimilarity(
+              source,
+              sourceStates.getOrDefault(source.id, StoredState.NONE),
+              storedResults.getOrDefault(source.id, List.of()),
+              targetById,
+              changedTargets,
+              changedObjects);
+      results.add(stored);
+      if (stored == null) rescored.add(i);
+    }
 
-      try {
-        // Find a transaction with the same name
-        params = Map.of("name", fullName);
-        resFinding = neo4jAL.executeQuery(reqFindByName, params);
-
-        // Parse the transactions
-        if (resFinding.hasNext()) {
-          // Found a similar transaction
-          idTarget = (Long) results.get("idTrans");
-          fullNameTarget = (String) results.get("transaction");
-
-          getSimilarTransactionDelta(idTrans, fullName, idTarget, fullNameTarget);
-        } else {
-          // Need to find a similar transaction
-          findSimilarTransaction(idTrans, fullName);
-        }
-
-      } catch (Neo4jQueryException | IOException e) {
-        // Ignored
-        neo4jAL.logError("Failed to treat transaction with id " + idTrans.toString() + " :", e);
-      } finally {
-        end = System.currentTimeMillis();
-        elapsedTime = end - start;
-        neo4jAL.logInfo("Iteration : " + it + ". Took " + elapsedTime + "ms.");
+    List<TransactionObjects> toScore = new ArrayList<>(rescored.size());
+    for (int i : rescored) toScore.add(sourceTransactions.get(i));
+    List<List<TransactionSimilarity>> scored = scoreTransactions(toScore);
+    for (int r = 0; r < scored.size(); r++) results.set(rescored.get(r), scored.get(r));
+
+    // Replace the results of the rescored sources
+    String reqDelete = neo4jAL.getQuery(DELETE_RESULTS_QUERY, link, applicationTarget);
+    String reqCreate = neo4jAL.getQuery(CREATE_RESULTS_QUERY, link, hashProperty);
+    int batchSize = configuration.getWriteBatchSize();
+    List<Long> sourceIds = new ArrayList<>(toScore.size());
+    List<Map<String, Object>> links = new ArrayList<>();
+    BatchWriter writer = new BatchWriter(neo4jAL, batchSize);
+    for (int r = 0; r < scored.size(); r++) {
+      TransactionObjects source = toScore.get(r);
+      sourceIds.add(source.id);
+
+      int numLinks = 0;
+      for (TransactionSimilarity similarity : scored.get(r)) {
+        if (!similarity.hasTarget()) continue;
+        links.add(
+            Map.of(
+                "source", similarity.getSourceId(),
+                "target", similarity.getTargetId(),
+                "type", similarity.isSimilar() ? "Similar" : "Different",
+                "rank", (long) similarity.getRank(),
+                "objectSimilarity", similarity.getObjectSimilarity(),
+                "databaseSimilarity", similarity.getDatabaseSimilarity(),
+                "targetHash",
+                    targetTransactions.get(targetById.get(similarity.getTargetId())).objectsHash));
+        numLinks++;
       }
+
+      writer.setLong(source.id, sourceHashProperty, source.objectsHash);
+      writer.setLong(source.id, topKProperty, topK);
+      writer.setLong(source.id, resultsProperty, numLinks);
     }
-  }
+    for (int from = 0; from < sourceIds.size(); from += batchSize) {
+      List<Long> batch = sourceIds.subList(from, Math.min(from + batchSize, sourceIds.size()));
+      neo4jAL.executeQuery(reqDelete, Map.of("sources", batch));
+    }
+    for (int from = 0; from < links.size(); from += batchSize) {
+      List<Map<String, Object>> batch = links.subList(from, Math.min(from + batchSize, links.size()));
+      neo4jAL.executeQuery(reqCreate, Map.of("results", batch));
+    }
+
+    // Hashes of the targets seen by this refresh
+    for (TransactionObjects target : targetTransactions) {
+      if (changedTargets.contains(target.id)) {
+        writer.setLong(target.id, targetHashProperty, target.objectsHash);
+      }
+    }
+    writer.flush();
 
-  /** Analyze the similarity of the database */
-  public void runDatabase() {
-    return;
+    neo4jAL.logInfo(
+        String.format(
+            "(%d ms) %d transactions of the application '%s' rescored, %d reused from the previous"
+                + " refresh. %d transactions of the application '%s' changed.",
+            System.currentTimeMillis() - start,
+            toScore.size(),
+            applicationSource,
+            sourceTransactions.size() - toScore.size(),
+            changedTargets.size(),
+            applicationTarget));
+
+    List<TransactionSimilarity> flattened = new ArrayList<>(results.size());
+    for (List<TransactionSimilarity> r : results) flattened.addAll(r);
+    return flattened;
   }
 
   /**
-   * Find the average delta between two list
-   * @param objectSource List of object in the source set
-   * @param objectTarget List of object in the Target Set
-   * @return The average percentage of similarities
+   * Rebuild the similarity of a source from the previous refresh, if it is still valid. The
+   * similarity is kept if the objects of the source didn't change, it was scored with the same K,
+   * and its targets are the same as a new scoring would find: the same target of the same name, or
+   * no changed target among the closest ones and no new or changed target sharing one of its
+   * objects.
+   *
+   * @param source Transaction of the source application
+   * @param state State of the source stored by the previous refresh
+   * @param stored Results of the source stored by the previous refresh whose target didn't change,
+   *     by rank
+   * @param targetById Index of each target transaction by id
+   * @param changedTargets Ids of the target transactions new or changed
+   * @param changedObjects Keys of the objects of the new or changed target transactions
+   * @return The similarity of the source, or null if it must be rescored
    */
-  public Double getDeltaList(List<String> objectSource, List<String> objectTarget) {
-    int transactionAtotal = objectSource.size(); // +1 to avoid empty transactions
-    int transactionBtotal = objectTarget.size();
+  private List<TransactionSimilarity> getStoredSimilarity(
+      TransactionObjects source,
+      StoredState state,
+      List<TransactionSimilarity> stored,
+      Map<Long, Integer> targetById,
+      Set<Long> changedTargets,
+      BitSet changedObjects) {
+    if (!state.hasHash(source.objectsHash)
+        || state.topK == null
+        || state.topK != topK
+        || state.results == null
+        || state.results != stored.size()) return null;
+
+    // The stored ranks must be complete
+    for (int rank = 0; rank < stored.size(); rank++) {
+      TransactionSimilarity similarity = stored.get(rank);
+      if (similarity.getRank() != rank + 1
+          || !targetById.containsKey(similarity.getTargetId())
+          || changedTargets.contains(similarity.getTargetId())) {
+        return null;
+      }
+    }
 
-    List<String> aInBlist = new ArrayList<>(objectSource); // Objects in A
-    List<String> bInAlist = new ArrayList<>(objectTarget); // Objects in B
+    Integer sameName = targetByName.get(source.name);
+    if (sameName != null) {
+      TransactionObjects target = targetTransactions.get(sameName);
+      if (stored.size() != 1 || !stored.get(0).isSimilar() || stored.get(0).getTargetId() != target.id) {
+        return null;
+      }
+    } else {
+      for (TransactionSimilarity similarity : stored) if (similarity.isSimilar()) return null;
+      for (int key : source.objectKeys) if (changedObjects.get(key)) return null;
+    }
 
-    aInBlist.removeAll(objectTarget); // All the object in A without the object in B ( Differences )
-    bInAlist.removeAll(objectSource); // All the object in B without the object in A ( Differences )
+    if (stored.isEmpty()) {
+      return List.of(
+          new TransactionSimilarity(
+              false, source.id, source.name, source.objects.size(), -1L, "Empty", 0, 0.0, 0.0));
+    }
 
-    // If 0 difference then it's a perfect match
-    double percentageA = 100.0; // By default assign 100%
-    if(!aInBlist.isEmpty()) {
-      if(transactionAtotal == 0) percentageA = 0.0;
-      else percentageA = 100 * ( 1 - (double) aInBlist.size() / transactionAtotal );
+    // Names and sizes are read from the current transactions
+    List<TransactionSimilarity> results = new ArrayList<>(stored.size());
+    for (TransactionSimilarity similarity : stored) {
+      TransactionObjects target = targetTransactions.get(targetById.get(similarity.getTargetId()));
+      results.add(
+          new TransactionSimilarity(
+              similarity.isSimilar(),
+              similarity.getRank(),
+              source.id,
+              source.name,
+              source.objects.size(),
+              target.id,
+              target.name,
+              target.objects.size(),
+              similarity.getObjectSimilarity(),
+              similarity.getDatabaseSimilarity()));
     }
+    return results;
+  }
 
-    double percentageB = 100.0;
-    if(!bInAlist.isEmpty()) {
-      if(transactionBtotal == 0) percentageB = 0.0;
-      else percentageB = 100 * ( 1 - (double) bInAlist.size() / transactionBtotal );
+  /**
+   * Get the hash and the scoring parameters stored on the source transactions by the previous
+   * refresh against the target application
+   *
+   * @param hashProperty Property of the hash of the source
+   * @param topKProperty Property of the K used
+   * @param resultsProperty Property of the number of results stored
+   * @return The state stored on each source transaction, by id
+   * @throws Neo4jQueryException If the request failed to execute
+   */
+  private Map<Long, StoredState> getStoredStates(
+      String hashProperty, String topKProperty, String resultsProperty)
+      throws Neo4jQueryException {
+    String req =
+        neo4jAL.getQuery(
+            STORED_STATES_QUERY, applicationSource, hashProperty, topKProperty, resultsProperty);
+
+    Map<Long, StoredState> states = new HashMap<>();
+    Result res = neo4jAL.executeQuery(req);
+    while (res.hasNext()) {
+      Map<String, Object> r = res.next();
+      states.put(
+          (Long) r.get("id"),
+          new StoredState(
+              asLong(r.get("hash")), asLong(r.get("topK")), asLong(r.get("results"))));
     }
+    return states;
+  }
+
+  /**
+   * Get the hashes stored on the target transactions by the previous refresh from the source
+   * application
+   *
+   * @param hashProperty Property of the hash of the target
+   * @return The hash of each target transaction, by id. Transactions without a hash are absent.
+   * @throws Neo4jQueryException If the request failed to execute
+   */
+  private Map<Long, Long> getStoredHashes(String hashProperty) throws Neo4jQueryException {
+    String req = neo4jAL.getQuery(STORED_HASHES_QUERY, applicationTarget, hashProperty);
 
-    // Average of this percentage
-    return  percentageA;
+    Map<Long, Long> hashes = new HashMap<>();
+    Result res = neo4jAL.executeQuery(req);
+    while (res.hasNext()) {
+      Map<String, Object> r = res.next();
+      Long hash = asLong(r.get("hash"));
+      if (hash != null) hashes.put((Long) r.get("id"), hash);
+    }
+    return hashes;
   }
 
   /**
-   * Find the delta based on transaction objects
+   * Get the results of the previous refresh, from the source to the target application. A result
+   * whose target changed since it was scored is left out, so its source no longer has the number of
+   * results it stored and is rescored.
    *
-   * @param idTrans Id of the source transaction
-   * @param idTarget Id of the target transaction
+   * @param targetById Index of each target transaction by id
+   * @return The results of each source, by id, sorted by rank. Only the source, the target, the
+   *     rank and the similarities are set.
    * @throws Neo4jQueryException If the request failed to execute
    */
-  private void getSimilarTransactionDelta(
-      Long idTrans, String fullName, Long idTarget, String fullNameTarget)
-      throws Neo4jQueryException, IOException {
+  private Map<Long, List<TransactionSimilarity>> getStoredResults(Map<Long, Integer> targetById)
+      throws Neo4jQueryException {
+    String req =
+        neo4jAL.getQuery(
+            STORED_RESULTS_QUERY,
+            applicationSource,
+            configuration.getVersionSimilarityLink(),
+            applicationTarget,
+            configuration.getObjectsHashProperty());
+
+    Map<Long, List<TransactionSimilarity>> results = new HashMap<>();
+    Result res = neo4jAL.executeQuery(req);
+    while (res.hasNext()) {
+      Map<String, Object> r = res.next();
+      Integer target = targetById.get((Long) r.get("target"));
+      Long targetHash = asLong(r.get("targetHash"));
+      if (target == null
+          || targetHash == null
+          || targetHash != targetTransactions.get(target).objectsHash) continue;
+
+      Long rank = asLong(r.get("rank"));
+      Object objectSimilarity = r.get("objectSimilarity");
+      Object databaseSimilarity = r.get("databaseSimilarity");
+      long source = (Long) r.get("source");
+      results
+          .computeIfAbsent(source, k -> new ArrayList<>())
+          .add(
+              new TransactionSimilarity(
+                  "Similar".equals(r.get("type")),
+                  rank == null ? 0 : rank.intValue(),
+                  source,
+                  null,
+                  0,
+                  (Long) r.get("target"),
+                  null,
+                  0,
+                  objectSimilarity instanceof Number ? ((Number) objectSimilarity).doubleValue() : 0.0,
+                  databaseSimilarity instanceof Number
+                      ? ((Number) databaseSimilarity).doubleValue()
+                      : 0.0));
+    }
+    for (List<TransactionSimilarity> r : results.values()) {
+      r.sort(Comparator.comparingInt(TransactionSimilarity::getRank));
+    }
+    return results;
+  }
 
-    // Get Object Delta
-    List<String> objectSource = getTransactionObject(applicationSource, idTrans);
-    List<String> objectTarget = getTransactionObject(applicationTarget, idTarget);
-    int sizeSource = objectSource.size();
-    int sizeTarget = objectTarget.size();
+  /**
+   * @param value Value of a property
+   * @return The value as a long, null if it isn't a number
+   */
+  private static Long asLong(Object value) {
+    return value instanceof Number ? ((Number) value).longValue() : null;
+  }
 
-    Double deltaObject = getDeltaList(objectSource, objectTarget);
+  /** Hash and scoring parameters stored on a source transaction by the previous refresh */
+  private static class StoredState {
+    private static final StoredState NONE = new StoredState(null, null, null);
 
-    // Get database delta
-    List<String> databaseSource = getDatabaseTables(applicationSource, idTrans);
-    List<String> databaseTarget = getDatabaseTables(applicationTarget, idTarget);
+    private final Long hash;
+    private final Long topK;
+    private final Long results;
 
-    Double deltaDatabase = getDeltaList(databaseSource, databaseTarget);
+    private StoredState(Long hash, Long topK, Long results) {
+      this.hash = hash;
+      this.topK = topK;
+      this.results = results;
+    }
 
-    writeResult(
-        true, idTrans, fullName, sizeSource,
-            idTarget, fullNameTarget, sizeTarget,
-            deltaObject, deltaDatabase);
+    private boolean hasHash(long objectsHash) {
+      return hash != null && hash == objectsHash;
+    }
   }
 
   /**
-   * Parse target application transactions to extract the most similar ones
+   * Find the target transaction of a source transaction. Only reads the indexes of the target,
+   * so it can be called by several workers.
    *
-   * @param idTrans Id of the transaction to analyze
+   * @param source Transaction of the source application
+   * @return The similarity of the source transaction, with the K closest targets if none has the
+   *     same name
    */
-  private void findSimilarTransaction(Long idTrans, String transactionName)
-      throws Neo4jQueryException, IOException {
-    // Get the objects in the source transaction
-    List<String> objectSource = getTransactionObject(applicationSource, idTrans);
-    List<String> tablesSource = getDatabaseTables(applicationSource, idTrans);
+  private List<TransactionSimilarity> compareTransaction(TransactionObjects source) {
+    // Find a transaction with the same name
+    Integer indexTarget = targetByName.get(source.name);
 
-    String reqIdTrans =
-        String.format(
-            "MATCH (t:Transaction:`%1$s`) RETURN DISTINCT ID(t) as tId, t.Name as transName;",
-            applicationTarget);
-    Result res = neo4jAL.executeQuery(reqIdTrans);
+    if (indexTarget != null) {
+      // Found a similar transaction
+      return List.of(getSimilarTransactionDelta(source, targetTransactions.get(indexTarget)));
+    } else {
+      // Need to find a similar transaction
+      return findSimilarTransactions(source);
+    }
+  }
 
-    List<String> objectTarget;
-    List<String> tablesTarget;
-    Map<String, Object> result;
-    Long idTarget = null;
-    String transName = null;
+  /**
+   * Load the transactions of the target application and index their MinHash signatures
+   *
+   * @throws Neo4jQueryException If the request failed to execute
+   */
+  private void indexTargetTransactions() throws Neo4jQueryException {
+    this.targetTransactions = getTransactionsObjects(applicationTarget);
+    this.targetByName = new HashMap<>();
+    this.targetIndex =
+        new MinHashIndex(configuration.getMinHashSignatureSize(), configuration.getLshBands());
+
+    for (int i = 0; i < targetTransactions.size(); i++) {
+      TransactionObjects target = targetTransactions.get(i);
+      targetByName.putIfAbsent(target.name, i);
+
+      // Empty transactions are never a match
+      if (target.objects.isEmpty()) continue;
+      target.signature = targetIndex.signature(target.objects);
+      targetIndex.insert(i, target.signature);
+    }
+  }
+
+  /**
+   * Analyze the similarity of the database. Each application is indexed once, from its tables to
+   * the transactions using them, and the two indexes are joined on the tables. The transactions of
+   * the two applications are matched by their name.
+   *
+   * @return The usage of each table in the two applications, sorted by table
+   * @throws Neo4jQueryException If the transactions couldn't be loaded
+   */
+  public List<TableSimilarity> runDatabase() throws Neo4jQueryException {
+    long start = System.currentTimeMillis();
+
+    if (sourceTransactions == null) sourceTransactions = getTransactionsObjects(applicationSource);
+    if (targetTransactions == null) targetTransactions = getTransactionsObjects(applicationTarget);
+
+    TableIndex sourceTables = indexTables(sourceTransactions);
+    TableIndex targetTables = indexTables(targetTransactions);
+
+    // Join the two indexes on the sorted keys of the tables
+    String[] names = new String[objectDictionary.size()];
+    objectDictionary.forEach((name, key) -> names[key] = name);
+
+    int[] sourceKeys = sourceTables.getTables();
+    int[] targetKeys = targetTables.getTables();
+    List<TableSimilarity> results = new ArrayList<>();
+    int shared = 0;
+    int i = 0, j = 0;
+    while (i < sourceKeys.length || j < targetKeys.length) {
+      int table;
+      if (j == targetKeys.length || (i < sourceKeys.length && sourceKeys[i] < targetKeys[j])) {
+        table = sourceKeys[i++];
+      } else if (i == sourceKeys.length || targetKeys[j] < sourceKeys[i]) {
+        table = targetKeys[j++];
+      } else {
+        table = sourceKeys[i++];
+        j++;
+        shared++;
+      }
 
-    Double deltaObject;
-    Double deltaDatabase;
+      int[] sourceUsers = sourceTables.getTransactions(table);
+      int[] targetUsers = targetTables.getTransactions(table);
+      results.add(
+          new TableSimilarity(
+              names[table],
+              sourceUsers.length,
+              targetUsers.length,
+              SortedSets.intersectionSize(sourceUsers, targetUsers)));
+    }
+    results.sort(Comparator.comparing(TableSimilarity::getTable));
 
-    Double maxDelta = 0.0;
-    Long maxDeltaTransID = -1L;
-    String maxDeltaName = "Empty";
-    Double maxDeltaTableDiff = 0.0;
-    int maxDeltaObjectCount = 0;
+    neo4jAL.logInfo(
+        String.format(
+            "(%d ms) %d tables in '%s', %d tables in '%s', %d shared.",
+            System.currentTimeMillis() - start,
+            sourceKeys.length,
+            applicationSource,
+            targetKeys.length,
+            applicationTarget,
+            shared));
+    return results;
+  }
 
-    while (res.hasNext()) {
-      result = res.next();
-      idTarget = (Long) result.get("tId");
-      transName = (String) result.get("transName");
+  /**
+   * Index the tables of an application
+   *
+   * @param transactions Transactions of the application
+   * @return The transactions using each table
+   */
+  private static TableIndex indexTables(List<TransactionObjects> transactions) {
+    TableIndex index = new TableIndex();
+    for (TransactionObjects transaction : transactions) {
+      index.add(transaction.key, transaction.tableKeys);
+    }
+    return index.build();
+  }
 
-      // Get the objects in the target transaction
+  /**
+   * Find the average delta between two list
+   * @param objectSource List of object in the source set
+   * @param objectTarget List of object in the Target Set
+   * @return The average percentage of similarities
+   */
+  public static Double getDeltaList(List<String> objectSource, List<String> objectTarget) {
+    Map<String, Integer> dictionary = new HashMap<>();
+    return getDeltaList(encode(objectSource, dictionary), encode(objectTarget, dictionary));
+  }
 
-      objectTarget = getTransactionObject(applicationTarget, idTarget);
-      tablesTarget = getDatabaseTables(applicationTarget, idTarget);
+  /**
+   * Find the delta between two sorted lists of objects, encoded with the same dictionary
+   * @param objectSource Sorted keys of the objects in the source set
+   * @param objectTarget Sorted keys of the objects in the target set
+   * @return The percentage of the source objects present in the target
+   */
+  public static Double getDeltaList(int[] objectSource, int[] objectTarget) {
+    return getDelta(SortedSets.intersectionSize(objectSource, objectTarget), objectSource.length);
+  }
 
-      // Skip empty transaction
-      if(objectTarget.size() == 0) continue;
+  /**
+   * Percentage of the source objects present in the target
+   * @param shared Number of source objects present in the target
+   * @param sourceSize Number of source objects
+   * @return The percentage
+   */
+  private static double getDelta(int shared, int sourceSize) {
+    // All the object in A without the object in B ( Differences )
+    int differences = sourceSize - shared;
 
-      deltaObject = getDeltaList(objectSource, objectTarget);
-      deltaDatabase = getDeltaList(tablesSource, tablesTarget);
+    // If 0 difference then it's a perfect match
+    if (differences == 0) return 100.0;
+    return 100 * (1 - (double) differences / sourceSize);
+  }
 
-      if (deltaObject > maxDelta) {
-        maxDelta = deltaObject;
-        maxDeltaTransID = idTarget;
-        maxDeltaName = transName;
-        maxDeltaTableDiff = deltaDatabase;
-        maxDeltaObjectCount = objectTarget.size();
-      }
+  /**
+   * Encode a list of names as a sorted array of keys. The duplicates are kept.
+   * @param names Names to encode
+   * @param dictionary Key of each name, completed with the new names
+   * @return The sorted keys
+   */
+  private static int[] encode(List<String> names, Map<String, Integer> dictionary) {
+    int[] keys = new int[names.size()];
+    for (int i = 0; i < keys.length; i++) {
+      keys[i] = dictionary.computeIfAbsent(names.get(i), k -> dictionary.size());
     }
+    Arrays.sort(keys);
+    return keys;
+  }
 
-    writeResult(false, idTrans, transactionName, objectSource.size(),
-            maxDeltaTransID, maxDeltaName, maxDeltaObjectCount, maxDelta, maxDeltaTableDiff);
-    // Save the results
+  /**
+   * Find the delta based on transaction objects
+   *
+   * @param source Source transaction
+   * @param target Target transaction with the same name
+   * @return The similarity of the source
+   */
+  private TransactionSimilarity getSimilarTransactionDelta(
+      TransactionObjects source, TransactionObjects target) {
 
+    // Get Object Delta
+    Double deltaObject = getDeltaList(source.objectKeys, target.objectKeys);
+
+    // Get database delta
+    Double deltaDatabase = getDeltaList(source.tableKeys, target.tableKeys);
+
+    return new TransactionSimilarity(
+        true, source.id, source.name, source.objects.size(),
+            target.id, target.name, target.objects.size(),
+            deltaObject, deltaDatabase);
   }
 
   /**
-   * Get the list of object in a transaction
+   * Parse target application transactions to extract the most similar ones. Only the candidates
+   * sharing a band of their MinHash signature with the source are scored, the best first according
+   * to the upper bound of their delta. The search stops when the bound can't beat the K-th match.
    *
-   * @param application
-   * @param idTrans
-   * @throws Neo4jQueryException If the request failed to execute
-   * @return The list of object fullName
+   * @param source Transaction to analyze
+   * @return The K closest targets, by decreasing delta. A single empty result if none was found.
    */
-  private List<String> getTransactionObject(String application, Long idTrans)
-      throws Neo4jQueryException {
-    Map<String, Object> params = Map.of("idTrans", idTrans);
-    String reqTransaction =
-        String.format(
-            "MATCH (t:Transaction:`%s`)-[]->(o:Object) WHERE ID(t)=$idTrans "
-                + "RETURN DISTINCT o.FullName as objectName;",
-            application);
+  private List<TransactionSimilarity> findSimilarTransactions(TransactionObjects source) {
+    int[] candidates =
+        source.objects.isEmpty()
+            ? new int[0]
+            : targetIndex.candidates(targetIndex.signature(source.objects));
+
+    // Without duplicates in the source, the shared objects can't exceed the distinct objects of
+    // the target. Candidates are sorted by decreasing bound, then by index.
+    boolean distinctSource = source.distinctObjects == source.objectKeys.length;
+    long[] ordered = new long[candidates.length];
+    for (int c = 0; c < candidates.length; c++) {
+      TransactionObjects target = targetTransactions.get(candidates[c]);
+      int bound =
+          distinctSource
+              ? Math.min(source.objectKeys.length, target.distinctObjects)
+              : source.objectKeys.length;
+      ordered[c] = ((long) (Integer.MAX_VALUE - bound) << 32) | candidates[c];
+    }
+    Arrays.sort(ordered);
+
+    // Worst of the K best matches at the head
+    Comparator<Match> byDelta =
+        Comparator.<Match>comparingDouble(m -> m.delta)
+            .thenComparing(Comparator.<Match>comparingInt(m -> m.target).reversed());
+    PriorityQueue<Match> best = new PriorityQueue<>(topK, byDelta);
+
+    for (long o : ordered) {
+      int candidate = (int) o;
+      double bound =
+          getDelta(Integer.MAX_VALUE - (int) (o >>> 32), source.objectKeys.length);
+      if (best.size() == topK && bound < best.peek().delta) break;
+
+      // Re-rank the candidates with the exact delta
+      TransactionObjects target = targetTransactions.get(candidate);
+      Match match = new Match(candidate, getDeltaList(source.objectKeys, target.objectKeys));
+      if (match.delta <= 0.0) continue;
+
+      if (best.size() < topK) {
+        best.add(match);
+      } else if (byDelta.compare(match, best.peek()) > 0) {
+        best.poll();
+        best.add(match);
+      }
+    }
 
-    Result res = neo4jAL.executeQuery(reqTransaction, params);
+    if (best.isEmpty()) {
+      return List.of(
+          new TransactionSimilarity(
+              false, source.id, source.name, source.objects.size(), -1L, "Empty", 0, 0.0, 0.0));
+    }
 
-    List<String> sourceObject = new ArrayList<>();
-    while (res.hasNext()) {
-      sourceObject.add((String) res.next().get("objectName"));
+    List<Match> matches = new ArrayList<>(best);
+    matches.sort(byDelta.reversed());
+
+    List<TransactionSimilarity> results = new ArrayList<>(matches.size());
+    for (int rank = 0; rank < matches.size(); rank++) {
+      TransactionObjects target = targetTransactions.get(matches.get(rank).target);
+      results.add(
+          new TransactionSimilarity(
+              false,
+              rank + 1,
+              source.id,
+              source.name,
+              source.objects.size(),
+              target.id,
+              target.name,
+              target.objects.size(),
+              matches.get(rank).delta,
+              getDeltaList(source.tableKeys, target.tableKeys)));
     }
+    return results;
+  }
+
+  /** Delta of a candidate target */
+  private static class Match {
+    private final int target;
+    private final double delta;
 
-    return sourceObject;
+    private Match(int target, double delta) {
+      this.target = target;
+      this.delta = delta;
+    }
   }
 
   /**
-   * Get the list of database table
+   * Get the objects and the database tables of all the transactions in an application
    *
    * @param application Name of the application
-   * @param idTrans Id of the transaction
    * @throws Neo4jQueryException If the request failed to execute
-   * @return The list of object fullName
+   * @return The list of transactions with their objects fullName
    */
-  private List<String> getDatabaseTables(String application, Long idTrans)
+  private List<TransactionObjects> getTransactionsObjects(String application)
       throws Neo4jQueryException {
-    Map<String, Object> params = Map.of("idTrans", idTrans);
-    String reqTransaction =
-        String.format(
-            "MATCH (t:Transaction:`%s`)-[]->(o:Object) WHERE ID(t)=$idTrans "
-                + "AND o.Type CONTAINS 'Table' "
-                + "RETURN DISTINCT o.FullName as objectName;",
-            application);
-
-    Result res = neo4jAL.executeQuery(reqTransaction, params);
+    TransactionSnapshot snapshot;
+    try {
+      snapshot = TransactionSnapshot.load(neo4jAL, application).loadObjectProperties(neo4jAL);
+    } catch (Neo4jBadRequestException e) {
+      throw new Neo4jQueryException(
+          String.format("Failed to load the transactions of application '%s'", application),
+          e,
+          ERROR_CODE + "GTRO01");
+    }
 
-    List<String> sourceObject = new ArrayList<>();
-    while (res.hasNext()) {
-      sourceObject.add((String) res.next().get("objectName"));
+    List<TransactionObjects> transactions = new ArrayList<>(snapshot.getNumTransactions());
+    for (int t = 0; t < snapshot.getNumTransactions(); t++) {
+      transactions.add(
+          new TransactionObjects(
+              snapshot.getTransactionId(t),
+              snapshot.getName(t),
+              snapshot.getObjectFullNames(t),
+              snapshot.getTableFullNames(t),
+              snapshot.getObjectsHash(t),
+              transactionDictionary,
+              objectDictionary));
     }
 
-    return sourceObject;
+    return transactions;
   }
 
-  /**
-   * Create and append the results to the File
-   */
-  private void writeResult(
-          Boolean similar,
-      Long idTrans,
-      String nameTrans,
-      Integer objectNumberSource,
-      Long idOther,
-      String otherName,
-      Integer objectNumberOther,
-      Double deltaObject,
-      Double deltaData )
-      throws IOException {
-
-    String fileName;
-    String tag;
-    if(similar) {
-      tag = "Similar";
-      fileName = outputPath + SimilarityController.PREFIX_SIMILAR + ".csv";
-    } else {
-      tag = "Different";
-      fileName = outputPath + SimilarityController.PREFIX_DIFFERENT + ".csv";
-    }
-
-    // "Similar, IdTransaction, TransName, DeltaObject, Similarities, DeltaDatabase, SimilarityDatabase"
-    try (FileWriter fw = new FileWriter(fileName, true); BufferedWriter bw = new BufferedWriter(fw)) {
-      String toWrite =
-              tag
-                      + ","
-                      + idTrans
-                      + ","
-                      + nameTrans
-                      + ","
-                      + objectNumberSource
-                      + ","
-                      + idOther
-                      + ","
-                      + otherName
-                      + ","
-                      + objectNumberOther
-                      + ","
-                      + deltaObject
-                      + ","
-                      + deltaData;
-      bw.write(toWrite);
-      bw.newLine();
-      bw.flush();
-    } catch (IOException ignored) {
+  /** Objects and database tables of a transaction */
+  private static class TransactionObjects {
+    private final Long id;
+    private final String name;
+    private final int key;
+    private final List<String> objects;
+
+    // Sorted keys of the objects and tables, for the deltas
+    private final int[] objectKeys;
+    private final int[] tableKeys;
+    private final int distinctObjects;
+
+    // Hash of the sorted FullName of the objects
+    private final long objectsHash;
+
+    private int[] signature = null;
+
+    public TransactionObjects(
+        Long id,
+        String name,
+        List<String> objects,
+        List<String> tables,
+        long objectsHash,
+        Map<String, Integer> names,
+        Map<String, Integer> dictionary) {
+      this.id = id;
+      this.name = name;
+      this.key = names.computeIfAbsent(name, k -> names.size());
+      this.objects = objects;
+      this.objectKeys = encode(objects, dictionary);
+      this.tableKeys = encode(tables, dictionary);
+      this.distinctObjects = SortedSets.of(objectKeys).length;
+      this.objectsHash = objectsHash;
     }
   }
-
-
 }
@@ -0,0 +1,289 @@
+/*
+ * Copyright (C) 2020  Hugo JOBY
+ *
+ *  This library is free software; you can redistribute it and/or modify it under the terms of the GNU Lesser General Public License as published by the Free Software Foundation; either version 3 of the License, or (at your option) any later version.
+ *
+ *  This library is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY; without even the implied warranty ofnMERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNUnLesser General Public License v3 for more details.
+ *
+ *  You should have received a copy of the GNU Lesser General Public v3 License along with this library; if not, write to the Free Software Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301  USA
+ *
+ */
+
+package com.castsoftware.caesar.database;
+
+import com.castsoftware.caesar.exceptions.neo4j.Neo4jQueryException;
+
+import java.util.*;
+
+/**
+ * Accumulate property updates on nodes and write them in chunks through the {@link Neo4jAL}.
+ *
+ * <p>Updates are buffered per property in primitive arrays (node ids, long values, codes of
+ * string values, or string arrays) and flushed with one <code>UNWIND</code> query per chunk. The updates of a
+ * property are applied in the order they were added, so the last value set on a node wins.
+ *
+ * <p>{@link #flush()} must be called once all the updates have been added.
+ */
+public class BatchWriter {
+
+  private static final String ERROR_PREFIX = "BATWx";
+  private static final int DEFAULT_BATCH_SIZE = 10000;
+
+  private static final String SET_LONG_QUERY =
+      Neo4jAL.registerQuery(
+          "batchWriter.setLong",
+          "UNWIND range(0, size($ids) - 1) as i "
+              + "MATCH (n) WHERE ID(n)=$ids[i] "
+              + "SET n.`%s`=$values[i]");
+  private static final String SET_STRING_QUERY =
+      Neo4jAL.registerQuery(
+          "batchWriter.setString",
+          "UNWIND range(0, size($ids) - 1) as i "
+              + "MATCH (n) WHERE ID(n)=$ids[i] "
+              + "SET n.`%s`=$dictionary[$codes[i]]");
+  private static final String SET_STRING_ARRAY_QUERY =
+      Neo4jAL.registerQuery(
+          "batchWriter.setStringArray",
+          "UNWIND range(0, size($ids) - 1) as i "
+              + "MATCH (n) WHERE ID(n)=$ids[i] "
+              + "SET n.`%s`=$values[i]");
+
+  private final Neo4jAL neo4jAL;
+  private final int batchSize;
+
+  private final Map<String, LongColumn> longColumns;
+  private final Map<String, StringColumn> stringColumns;
+  private final Map<String, StringArrayColumn> stringArrayColumns;
+
+  private long written = 0;
+  private long queries = 0;
+
+  /**
+   * Set a long property on a node
+   *
+   * @param nodeId Id of the node
+   * @param property Name of the property
+   * @param value Value to set
+   * @throws Neo4jQueryException If the buffer of the property is full and its flush failed
+   */
+  public void setLong(long nodeId, String property, long value) throws Neo4jQueryException {
+    LongColumn column = longColumns.computeIfAbsent(property, p -> new LongColumn(batchSize));
+    column.add(nodeId, value);
+    if (column.size == batchSize) flushLong(property, column);
+  }
+
+  /**
+   * Set a string property on a node
+   *
+   * @param nodeId Id of the node
+   * @param property Name of the property
+   * @param value Value to set
+   * @throws Neo4jQueryException If the buffer of the property is full and its flush failed
+   */
+  public void setString(long nodeId, String property, String value) throws Neo4jQueryException {
+    StringColumn column = stringColumns.computeIfAbsent(property, p -> new StringColumn(batchSize));
+    column.add(nodeId, value);
+    if (column.size == batchSize) flushString(property, column);
+  }
+
+  /**
+   * Set a string array property on a node
+   *
+   * @param nodeId Id of the node
+   * @param property Name of the property
+   * @param values Values to set
+   * @throws Neo4jQueryException If the buffer of the property is full and its flush failed
+   */
+  public void setStringArray(long nodeId, String property, String[] values)
+      throws Neo4jQueryException {
+    StringArrayColumn column =
+        stringArrayColumns.computeIfAbsent(property, p -> new StringArrayColumn(batchSize));
+    column.add(nodeId, values);
+    if (column.size == batchSize) flushStringArray(property, column);
+  }
+
+  /**
+   * Write all the pending updates
+   *
+   * @throws Neo4jQueryException If a query failed
+   */
+  public void flush() throws Neo4jQueryException {
+    for (Map.Entry<String, LongColumn> en : longColumns.entrySet()) {
+      flushLong(en.getKey(), en.getValue());
+    }
+    for (Map.Entry<String, StringColumn> en : stringColumns.entrySet()) {
+      flushString(en.getKey(), en.getValue());
+    }
+    for (Map.Entry<String, StringArrayColumn> en : stringArrayColumns.entrySet()) {
+      flushStringArray(en.getKey(), en.getValue());
+    }
+  }
+
+  private void flushLong(String property, LongColumn column) throws Neo4jQueryException {
+    if (column.size == 0) return;
+
+    String req = neo4jAL.getQuery(SET_LONG_QUERY, property);
+    Map<String, Object> params =
+        Map.of(
+            "ids", Arrays.copyOf(column.ids, column.size),
+            "values", Arrays.copyOf(column.values, column.size));
+    execute(req, params, column.size);
+    column.size = 0;
+  }
+
+  private void flushString(String property, StringColumn column) throws Neo4jQueryException {
+    if (column.size == 0) return;
+
+    // Values are sent once, and referenced by their code
+    String req = neo4jAL.getQuery(SET_STRING_QUERY, property);
+    Map<String, Object> params =
+        Map.of(
+            "ids", Arrays.copyOf(column.ids, column.size),
+            "codes", Arrays.copyOf(column.codes, column.size),
+            "dictionary", new ArrayList<>(column.dictionary));
+    execute(req, params, column.size);
+    column.clear();
+  }
+
+  private void flushStringArray(String property, StringArrayColumn column)
+      throws Neo4jQueryException {
+    if (column.size == 0) return;
+
+    String req = neo4jAL.getQuery(SET_STRING_ARRAY_QUERY, property);
+    Map<String, Object> params =
+        Map.of(
+            "ids", Arrays.copyOf(column.ids, column.size),
+            "values", Arrays.copyOf(column.values, column.size));
+    execute(req, params, column.size);
+    column.clear();
+  }
+
+  private void execute(String req, Map<String, Object> params, int size)
+      throws Neo4jQueryException {
+    try {
+      neo4jAL.executeQuery(req, params).close();
+    } catch (Neo4jQueryException e) {
+      throw new Neo4jQueryException(
+          String.format("Failed to write a batch of %d updates.", size), e, ERROR_PREFIX + "FLUS1");
+    }
+    written += size;
+    queries++;
+  }
+
+  /**
+   * Number of node updates written so far
+   *
+   * @return The number of updates
+   */
+  public long getWritten() {
+    return written;
+  }
+
+  /**
+   * Number of queries sent so far
+   *
+   * @return The number of queries
+   */
+  public long getQueries() {
+    return queries;
+  }
+
+  /**
+   * Constructor
+   *
+   * @param neo4jAL Neo4j Access Layer
+   * @param batchSize Maximum number of updates sent in one query. The default size is used if it
+   *     isn't positive
+   */
+  public BatchWriter(Neo4jAL neo4jAL, int batchSize) {
+    this.neo4jAL = neo4jAL;
+    this.batchSize = batchSize > 0 ? batchSize : DEFAULT_BATCH_SIZE;
+    this.longColumns = new LinkedHashMap<>();
+    this.stringColumns = new LinkedHashMap<>();
+    this.stringArrayColumns = new LinkedHashMap<>();
+  }
+
+  /**
+   * Constructor with the default batch size
+   *
+   * @param neo4jAL Neo4j Access Layer
+   */
+  public BatchWriter(Neo4jAL neo4jAL) {
+    this(neo4jAL, DEFAULT_BATCH_SIZE);
+  }
+
+  /** Pending updates of a long property */
+  private static class LongColumn {
+    private final long[] ids;
+    private final long[] values;
+    private int size = 0;
+
+    private void add(long id, long value) {
+      ids[size] = id;
+      values[size] = value;
+      size++;
+    }
+
+    private LongColumn(int capacity) {
+      this.ids = new long[capacity];
+      this.values = new long[capacity];
+    }
+  }
+
+  /** Pending updates of a string property. Distinct values are stored once. */
+  private static class StringColumn {
+    private final long[] ids;
+    private final int[] codes;
+    private final List<String> dictionary = new ArrayList<>();
+    private final Map<String, Integer> dictionaryIndex = new HashMap<>();
+    private int size = 0;
+
+    private void add(long id, String value) {
+      Integer code = dictionaryIndex.get(value);
+      if (code == null) {
+        code = dictionary.size();
+        dictionary.add(value);
+        dictionaryIndex.put(value, code);
+      }
+
+      ids[size] = id;
+      codes[size] = code;
+      size++;
+    }
+
+    private void clear() {
+      size = 0;
+      dictionary.clear();
+      dictionaryIndex.clear();
+    }
+
+    private StringColumn(int capacity) {
+      this.ids = new long[capacity];
+      this.codes = new int[capacity];
+    }
+  }
+
+  /** Pending updates of a string array property */
+  private static class StringArrayColumn {
+    private final long[] ids;
+    private final String[][] values;
+    private int size = 0;
+
+    private void add(long id, String[] value) {
+      ids[size] = id;
+      values[size] = value;
+      size++;
+    }
+
+    private void clear() {
+      // Release the arrays already written
+      Arrays.fill(values, 0, size, null);
+      size = 0;
+    }
+
+    private StringArrayColumn(int capacity) {
+      this.ids = new long[capacity];
+      this.values = new String[capacity][];
+    }
+  }
+}
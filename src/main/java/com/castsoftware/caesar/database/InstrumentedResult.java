@@ -0,0 +1,148 @@
+/*
+ * Copyright (C) 2020  Hugo JOBY
+ *
+ *  This library is free software; you can redistribute it and/or modify it under the terms of the GNU Lesser General Public License as published by the Free Software Foundation; either version 3 of the License, or (at your option) any later version.
+ *
+ *  This library is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY; without even the implied warranty ofnMERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNUnLesser General Public License v3 for more details.
+ *
+ *  You should have received a copy of the GNU Lesser General Public v3 License along with this library; if not, write to the Free Software Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301  USA
+ *
+ */
+
+package com.castsoftware.caesar.database;
+
+import org.neo4j.graphdb.*;
+
+import java.io.PrintWriter;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Consumer;
+
+/**
+ * Result counting its rows and measuring the latency of its query.
+ *
+ * <p>Queries writing to the database are executed eagerly by Neo4j, so their latency is complete
+ * when the result is returned. Read-only queries are executed while their rows are consumed, so
+ * their latency is recorded once the result is exhausted or closed. A read-only result dropped
+ * before either is counted as a call, without latency.
+ */
+public class InstrumentedResult implements Result {
+
+  private final Result result;
+  private final QueryMetrics.Entry entry;
+  private final long start;
+  private final Consumer<Long> onComplete;
+
+  private long rows = 0;
+  private boolean completed = false;
+
+  /**
+   * Record the statistics of the query, only once
+   */
+  private void complete() {
+    if (completed) return;
+    completed = true;
+
+    long micros = (System.nanoTime() - start) / 1000;
+    entry.addRows(rows);
+    onComplete.accept(micros);
+  }
+
+  @Override
+  public QueryExecutionType getQueryExecutionType() {
+    return result.getQueryExecutionType();
+  }
+
+  @Override
+  public List<String> columns() {
+    return result.columns();
+  }
+
+  @Override
+  public <T> ResourceIterator<T> columnAs(String name) {
+    return result.columnAs(name);
+  }
+
+  @Override
+  public boolean hasNext() {
+    boolean hasNext = result.hasNext();
+    if (!hasNext) complete();
+    return hasNext;
+  }
+
+  @Override
+  public Map<String, Object> next() {
+    Map<String, Object> row = result.next();
+    rows++;
+    return row;
+  }
+
+  @Override
+  public void close() {
+    try {
+      result.close();
+    } finally {
+      complete();
+    }
+  }
+
+  @Override
+  public QueryStatistics getQueryStatistics() {
+    return result.getQueryStatistics();
+  }
+
+  @Override
+  public ExecutionPlanDescription getExecutionPlanDescription() {
+    return result.getExecutionPlanDescription();
+  }
+
+  @Override
+  public String resultAsString() {
+    String content = result.resultAsString();
+    complete();
+    return content;
+  }
+
+  @Override
+  public void writeAsStringTo(PrintWriter writer) {
+    result.writeAsStringTo(writer);
+    complete();
+  }
+
+  @Override
+  public void remove() {
+    result.remove();
+  }
+
+  @Override
+  public Iterable<Notification> getNotifications() {
+    return result.getNotifications();
+  }
+
+  @Override
+  public <VisitationException extends Exception> void accept(
+      ResultVisitor<VisitationException> visitor) throws VisitationException {
+    result.accept(
+        row -> {
+          rows++;
+          return visitor.visit(row);
+        });
+    complete();
+  }
+
+  /**
+   * Constructor
+   *
+   * @param result Result to instrument
+   * @param entry Statistics of the query
+   * @param start Start of the execution, from {@link System#nanoTime()}
+   * @param onComplete Called with the latency in microseconds once the result is consumed
+   */
+  public InstrumentedResult(
+      Result result, QueryMetrics.Entry entry, long start, Consumer<Long> onComplete) {
+    this.result = result;
+    this.entry = entry;
+    this.start = start;
+    this.onComplete = onComplete;
+  }
+}
@@ -0,0 +1,112 @@
+/*
+ * Copyright (C) 2020  Hugo JOBY
+ *
+ *  This library is free software; you can redistribute it and/or modify it under the terms of the GNU Lesser General Public License as published by the Free Software Foundation; either version 3 of the License, or (at your option) any later version.
+ *
+ *  This library is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY; without even the implied warranty ofnMERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNUnLesser General Public License v3 for more details.
+ *
+ *  You should have received a copy of the GNU Lesser General Public v3 License along with this library; if not, write to the Free Software Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301  USA
+ *
+ */
+
+package com.castsoftware.caesar.database;
+
+/**
+ * Histogram of latencies in microseconds, with a bounded relative error.
+ *
+ * <p>Values are stored in log-linear buckets, in the manner of HdrHistogram : each power of two is
+ * split in {@value #SUB_BUCKETS} linear sub-buckets, so a percentile is known within about 3%.
+ * Values up to 2^{@value #MAX_EXPONENT} microseconds (about 12 days) fit in 1.3k counters. Values
+ * above are recorded in the last bucket.
+ */
+public class LatencyHistogram {
+
+  private static final int SUB_BUCKET_BITS = 5;
+  private static final int SUB_BUCKETS = 1 << SUB_BUCKET_BITS;
+  private static final int MAX_EXPONENT = 40;
+
+  private final long[] counts = new long[(MAX_EXPONENT - SUB_BUCKET_BITS + 2) * SUB_BUCKETS];
+
+  private long count = 0;
+  private long total = 0;
+  private long min = Long.MAX_VALUE;
+  private long max = 0;
+
+  /**
+   * Index of the bucket holding a value. Values below {@value #SUB_BUCKETS} have their own bucket,
+   * then the exponent selects the group, and the next bits the sub-bucket.
+   */
+  private static int indexOf(long value) {
+    if (value < SUB_BUCKETS) return (int) value;
+
+    int exponent = 63 - Long.numberOfLeadingZeros(value);
+    if (exponent > MAX_EXPONENT) return (MAX_EXPONENT - SUB_BUCKET_BITS + 2) * SUB_BUCKETS - 1;
+
+    int shift = exponent - SUB_BUCKET_BITS;
+    int subBucket = (int) (value >>> shift) - SUB_BUCKETS;
+    return (shift + 1) * SUB_BUCKETS + subBucket;
+  }
+
+  /** Highest value stored in a bucket */
+  private static long highestValueOf(int index) {
+    if (index < SUB_BUCKETS) return index;
+
+    int shift = index / SUB_BUCKETS - 1;
+    long subBucket = index % SUB_BUCKETS + SUB_BUCKETS;
+    return ((subBucket + 1) << shift) - 1;
+  }
+
+  /**
+   * Record a latency
+   *
+   * @param micros Latency in microseconds
+   */
+  public synchronized void record(long micros) {
+    long value = Math.max(0, micros);
+    counts[indexOf(value)]++;
+    count++;
+    total += value;
+    min = Math.min(min, value);
+    max = Math.max(max, value);
+  }
+
+  /**
+   * Get the value under which a percentage of the latencies fall
+   *
+   * @param percentile Percentile between 0 and 100
+   * @return The latency in microseconds, or 0 if nothing was recorded
+   */
+  public synchronized long getValueAtPercentile(double percentile) {
+    if (count == 0) return 0;
+
+    long rank = (long) Math.ceil(Math.min(100.0, Math.max(0.0, percentile)) / 100.0 * count);
+    rank = Math.max(1, rank);
+
+    long seen = 0;
+    for (int i = 0; i < counts.length; i++) {
+      seen += counts[i];
+      if (seen >= rank) return Math.min(highestValueOf(i), max);
+    }
+    return max;
+  }
+
+  public synchronized long getCount() {
+    return count;
+  }
+
+  public synchronized long getTotal() {
+    return total;
+  }
+
+  public synchronized long getMin() {
+    return count == 0 ? 0 : min;
+  }
+
+  public synchronized long getMax() {
+    return max;
+  }
+
+  public synchronized double getMean() {
+    return count == 0 ? 0.0 : (double) total / count;
+  }
+}
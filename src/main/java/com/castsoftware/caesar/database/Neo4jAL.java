@@ -18,18 +18,21 @@ import org.neo4j.graphdb.*;
 import org.neo4j.logging.Log;
 
 import java.util.ArrayList;
+import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 
 public class Neo4jAL {
 
   private static final String ERROR_PREFIX = "NEOALx";
+  private static final int MAX_LOGGED_PARAMETERS_LENGTH = 1000;
 
   private final Log log;
   private final GraphDatabaseService db;
 
   private Transaction transaction = null;
   private Boolean activeTransaction = false;
+  private long numExecutedQueries = 0;
 
   /**
    * Constructor for the Neo4j Layer
@@ -44,6 +47,7 @@ public class Neo4jAL {
     this.log = log;
     this.transaction = transaction;
     this.activeTransaction = true;
+    QueryMetrics.getInstance().reportConfigurationWarning(log);
   }
 
   /**
@@ -73,13 +77,40 @@ public class Neo4jAL {
    */
   public Result executeQuery(String query) throws Neo4jQueryException {
     try {
-      return this.transaction.execute(query);
+      long start = System.nanoTime();
+      return instrument(query, Map.of(), this.transaction.execute(query), start);
     } catch (QueryExecutionException e) {
       throw new Neo4jQueryException(
           "Error while executing query.", query, e, ERROR_PREFIX + "EXQS1");
     }
   }
 
+  /**
+   * Register a named query template in the shared {@link QueryRegistry}
+   *
+   * @param name Unique name of the query
+   * @param template <code>String.format</code> template of the query
+   * @return The name of the query
+   */
+  public static String registerQuery(String name, String template) {
+    return QueryRegistry.getInstance().register(name, template);
+  }
+
+  /**
+   * Get a registered query, formatted with its arguments
+   *
+   * @param name Name of the query
+   * @param arguments Arguments of the template
+   * @return The query
+   */
+  public String getQuery(String name, Object... arguments) {
+    return QueryRegistry.getInstance().get(name, arguments);
+  }
+
+  public QueryRegistry getQueryRegistry() {
+    return QueryRegistry.getInstance();
+  }
+
   /**
    * Find nodes using their Label
    *
@@ -108,29 +139,156 @@ public class Neo4jAL {
    */
   public Result executeQuery(String query, Map<String, Object> params) throws Neo4jQueryException {
     try {
-      return this.transaction.execute(query, params);
+      long start = System.nanoTime();
+      return instrument(query, params, this.transaction.execute(query, params), start);
     } catch (QueryExecutionException e) {
       throw new Neo4jQueryException(
           "Error while executing query with parameters.", query, e, ERROR_PREFIX + "EXQS1");
     }
   }
 
-  public Result executeAtomicQuery(String query, Map<String, Object> params)
+  /**
+   * Record the statistics of a query in the {@link QueryMetrics}. The latency of a query writing
+   * to the database is complete once it returns, the latency of a read-only query once its rows are
+   * consumed.
+   *
+   * @param query Query executed
+   * @param params Parameters of the query
+   * @param result Result returned by Neo4j
+   * @param start Start of the execution, from {@link System#nanoTime()}
+   * @return The instrumented result
+   */
+  private Result instrument(String query, Map<String, Object> params, Result result, long start) {
+    QueryMetrics.Entry entry = QueryMetrics.getInstance().get(query);
+    entry.addCall();
+    numExecutedQueries++;
+
+    if (result.getQueryExecutionType().queryType() != QueryExecutionType.QueryType.READ_ONLY) {
+      recordLatency(entry, query, params, (System.nanoTime() - start) / 1000);
+      return new InstrumentedResult(result, entry, start, micros -> {});
+    }
+    return new InstrumentedResult(
+        result, entry, start, micros -> recordLatency(entry, query, params, micros));
+  }
+
+  /**
+   * Record the latency of a query, and log it if it's slower than the threshold
+   *
+   * @param entry Statistics of the query
+   * @param query Query executed
+   * @param params Parameters of the query
+   * @param micros Latency in microseconds
+   */
+  private void recordLatency(
+      QueryMetrics.Entry entry, String query, Map<String, Object> params, long micros) {
+    long threshold = QueryMetrics.getInstance().getSlowQueryThreshold();
+    boolean slow = threshold > 0 && micros >= threshold * 1000;
+    entry.recordLatency(micros, slow);
+    if (!slow) return;
+
+    String parameters = String.valueOf(params);
+    if (parameters.length() > MAX_LOGGED_PARAMETERS_LENGTH) {
+      parameters = parameters.substring(0, MAX_LOGGED_PARAMETERS_LENGTH) + "...";
+    }
+    log.warn(
+        String.format(
+            "Slow query ( %d ms ) : %s%nParameters : %s", micros / 1000, query, parameters));
+  }
+
+  /**
+   * Execute a query in its own inner transaction, committed once the query is done. The rows are
+   * read before the commit, as a result cannot be consumed once its transaction is closed.
+   *
+   * <p>The inner transaction is independent of the transaction of the procedure: it must not
+   * modify nodes or relationships already modified by the procedure transaction, as it would wait
+   * for locks that are only released at the end of the procedure.
+   *
+   * @param query Cypher query to execute
+   * @param params Parameters of the query
+   * @return The rows returned by the query
+   * @throws Neo4jQueryException Exception during the processing of the query
+   */
+  public List<Map<String, Object>> executeAtomicQuery(String query, Map<String, Object> params)
       throws Neo4jQueryException {
     try (Transaction tx = db.beginTx()) {
-      return tx.execute(query, params);
-    } catch (QueryExecutionException e) {
+      long start = System.nanoTime();
+      List<Map<String, Object>> rows = new ArrayList<>();
+      try (Result res = instrument(query, params, tx.execute(query, params), start)) {
+        while (res.hasNext()) rows.add(res.next());
+      }
+      tx.commit();
+      return rows;
+    } catch (QueryExecutionException | TransactionFailureException e) {
       throw new Neo4jQueryException(
           "Error while executing query with parameters.", query, e, ERROR_PREFIX + "EXAQ1");
     }
   }
 
-  public Result executeAtomicQuery(String query) throws Neo4jQueryException {
-    try (Transaction tx = db.beginTx()) {
-      return tx.execute(query);
-    } catch (QueryExecutionException e) {
-      throw new Neo4jQueryException(
-          "Error while executing query with parameters.", query, e, ERROR_PREFIX + "EXAQ11");
+  /**
+   * Execute a query in its own inner transaction, committed once the query is done
+   *
+   * @param query Cypher query to execute
+   * @return The rows returned by the query
+   * @throws Neo4jQueryException Exception during the processing of the query
+   * @see #executeAtomicQuery(String, Map)
+   */
+  public List<Map<String, Object>> executeAtomicQuery(String query) throws Neo4jQueryException {
+    return executeAtomicQuery(query, Map.of());
+  }
+
+  /**
+   * Execute a query over a list of items in chunks. Each chunk is passed as a list parameter and
+   * runs in its own committed inner transaction, so the transaction state never holds more than one
+   * chunk. If a chunk fails, the chunks before it remain committed.
+   *
+   * @param query Cypher query to execute, using the chunk through <code>$batchParameter</code>
+   * @param batchParameter Name of the parameter receiving the chunk
+   * @param items Items to process
+   * @param params Other parameters of the query
+   * @param chunkSize Maximum number of items per transaction
+   * @return The number of transactions committed
+   * @throws Neo4jQueryException Exception during the processing of a chunk
+   * @see #executeAtomicQuery(String, Map)
+   */
+  public int executeInChunks(
+      String query,
+      String batchParameter,
+      List<?> items,
+      Map<String, Object> params,
+      int chunkSize)
+      throws Neo4jQueryException {
+    int commits = 0;
+    for (int from = 0; from < items.size(); from += chunkSize) {
+      Map<String, Object> chunkParams = new HashMap<>(params);
+      chunkParams.put(batchParameter, items.subList(from, Math.min(from + chunkSize, items.size())));
+      executeAtomicQuery(query, chunkParams);
+      commits++;
+    }
+    return commits;
+  }
+
+  /**
+   * Repeat a query in committed inner transactions until it reports no more work. The query must
+   * limit the number of elements it processes and return their number in its first column, for
+   * example <code>MATCH ()-[r:LINK]->() WITH r LIMIT $limit DELETE r RETURN COUNT(r) as count</code>.
+   *
+   * @param query Cypher query to execute
+   * @param params Parameters of the query
+   * @return The total number of elements processed
+   * @throws Neo4jQueryException Exception during the processing of the query
+   * @see #executeAtomicQuery(String, Map)
+   */
+  public long executeUntilDone(String query, Map<String, Object> params)
+      throws Neo4jQueryException {
+    long total = 0;
+    while (true) {
+      List<Map<String, Object>> rows = executeAtomicQuery(query, params);
+      if (rows.isEmpty()) return total;
+
+      Object count = rows.get(0).values().iterator().next();
+      long processed = count instanceof Number ? ((Number) count).longValue() : 0L;
+      if (processed == 0) return total;
+      total += processed;
     }
   }
 
@@ -232,6 +390,15 @@ public class Neo4jAL {
     return labels;
   }
 
+  /**
+   * Number of queries executed through this access layer
+   *
+   * @return The number of queries
+   */
+  public long getNumExecutedQueries() {
+    return numExecutedQueries;
+  }
+
   public Log getLogger() {
     return log;
   }
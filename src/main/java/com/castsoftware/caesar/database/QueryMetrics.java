@@ -0,0 +1,190 @@
+/*
+ * Copyright (C) 2020  Hugo JOBY
+ *
+ *  This library is free software; you can redistribute it and/or modify it under the terms of the GNU Lesser General Public License as published by the Free Software Foundation; either version 3 of the License, or (at your option) any later version.
+ *
+ *  This library is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY; without even the implied warranty ofnMERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNUnLesser General Public License v3 for more details.
+ *
+ *  You should have received a copy of the GNU Lesser General Public v3 License along with this library; if not, write to the Free Software Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301  USA
+ *
+ */
+
+package com.castsoftware.caesar.database;
+
+import com.castsoftware.caesar.configuration.Configuration;
+import org.neo4j.logging.Log;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Latency and row statistics of the queries executed through the {@link Neo4jAL}, shared by all
+ * the procedures.
+ *
+ * <p>Queries are grouped by their name in the {@link QueryRegistry}, or by their text if they are
+ * not registered. A query slower than the threshold declared by
+ * <code>metrics.slow.query.threshold</code> (in milliseconds) is logged with its parameters.
+ */
+public class QueryMetrics {
+
+  private static final QueryMetrics INSTANCE = new QueryMetrics();
+
+  private static final String SLOW_QUERY_THRESHOLD_KEY = "metrics.slow.query.threshold";
+  private static final long DEFAULT_SLOW_QUERY_THRESHOLD = 1000;
+
+  // Unregistered queries are keyed by their text, the number of entries is bounded
+  private static final int MAX_ENTRIES = 1000;
+  private static final int MAX_NAME_LENGTH = 160;
+  private static final String OTHER_QUERIES = "<other>";
+
+  private final Map<String, Entry> entries = new ConcurrentHashMap<>();
+  private final long slowQueryThreshold;
+
+  // Problem found while reading the configuration, logged once a Neo4j log is available
+  private String configurationWarning;
+  private final AtomicBoolean warningReported = new AtomicBoolean(false);
+
+  public static QueryMetrics getInstance() {
+    return INSTANCE;
+  }
+
+  /**
+   * Get the statistics of a query
+   *
+   * @param query Query executed
+   * @return The statistics of the query, created on first use
+   */
+  public Entry get(String query) {
+    String name = QueryRegistry.getInstance().getName(query);
+    if (name == null) name = normalize(query);
+
+    Entry entry = entries.get(name);
+    if (entry != null) return entry;
+    if (entries.size() >= MAX_ENTRIES) name = OTHER_QUERIES;
+    return entries.computeIfAbsent(name, Entry::new);
+  }
+
+  /**
+   * Collapse the whitespaces of an unregistered query and truncate it
+   *
+   * @param query Query
+   * @return The name used for this query
+   */
+  private static String normalize(String query) {
+    String name = query.trim().replaceAll("\\s+", " ");
+    return name.length() > MAX_NAME_LENGTH ? name.substring(0, MAX_NAME_LENGTH) + "..." : name;
+  }
+
+  /**
+   * Get the statistics of all the queries
+   *
+   * @return The list of statistics
+   */
+  public List<Entry> getEntries() {
+    return new ArrayList<>(entries.values());
+  }
+
+  /** Forget all the statistics */
+  public void reset() {
+    entries.clear();
+  }
+
+  /**
+   * Threshold above which a query is logged
+   *
+   * @return The threshold in milliseconds, 0 or less if the log is disabled
+   */
+  public long getSlowQueryThreshold() {
+    return slowQueryThreshold;
+  }
+
+  /**
+   * Log the problem found while reading the configuration, if any. Only the first call logs it.
+   *
+   * @param log Log of the procedure
+   */
+  public void reportConfigurationWarning(Log log) {
+    if (configurationWarning == null || !warningReported.compareAndSet(false, true)) return;
+    log.warn(configurationWarning);
+  }
+
+  /**
+   * Read the slow query threshold from the configuration
+   *
+   * @return The threshold declared in the configuration, or the default threshold
+   */
+  private long loadSlowQueryThreshold() {
+    Object threshold = Configuration.getAsObject(SLOW_QUERY_THRESHOLD_KEY);
+    if (threshold == null) return DEFAULT_SLOW_QUERY_THRESHOLD;
+
+    try {
+      return Long.parseLong(threshold.toString().trim());
+    } catch (NumberFormatException e) {
+      configurationWarning =
+          String.format(
+              "Invalid slow query threshold '%s', using %d ms.",
+              threshold, DEFAULT_SLOW_QUERY_THRESHOLD);
+      return DEFAULT_SLOW_QUERY_THRESHOLD;
+    }
+  }
+
+  private QueryMetrics() {
+    this.slowQueryThreshold = loadSlowQueryThreshold();
+  }
+
+  /** Statistics of one query */
+  public static class Entry {
+    private final String name;
+    private final LatencyHistogram latencies = new LatencyHistogram();
+    private final AtomicLong calls = new AtomicLong(0);
+    private final AtomicLong rows = new AtomicLong(0);
+    private final AtomicLong slowCalls = new AtomicLong(0);
+
+    public void addCall() {
+      calls.incrementAndGet();
+    }
+
+    public void addRows(long count) {
+      rows.addAndGet(count);
+    }
+
+    /**
+     * Record the latency of a completed call
+     *
+     * @param micros Latency in microseconds
+     * @param slow True if the call was slower than the threshold
+     */
+    public void recordLatency(long micros, boolean slow) {
+      latencies.record(micros);
+      if (slow) slowCalls.incrementAndGet();
+    }
+
+    public String getName() {
+      return name;
+    }
+
+    public long getCalls() {
+      return calls.get();
+    }
+
+    public long getRows() {
+      return rows.get();
+    }
+
+    public long getSlowCalls() {
+      return slowCalls.get();
+    }
+
+    public LatencyHistogram getLatencies() {
+      return latencies;
+    }
+
+    private Entry(String name) {
+      this.name = name;
+    }
+  }
+}
@@ -0,0 +1,151 @@
+/*
+ * Copyright (C) 2020  Hugo JOBY
+ *
+ *  This library is free software; you can redistribute it and/or modify it under the terms of the GNU Lesser General Public License as published by the Free Software Foundation; either version 3 of the License, or (at your option) any later version.
+ *
+ *  This library is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY; without even the implied warranty ofnMERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNUnLesser General Public License v3 for more details.
+ *
+ *  You should have received a copy of the GNU Lesser General Public v3 License along with this library; if not, write to the Free Software Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301  USA
+ *
+ */
+
+package com.castsoftware.caesar.database;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Registry of the named query templates of the extension.
+ *
+ * <p>A template is a <code>String.format</code> pattern, whose arguments are the parts of the
+ * query that cannot be parameters in Cypher (labels, relationship types, property names). Each
+ * template is formatted once per set of arguments and the query string is reused afterwards, so
+ * the same query text is sent to Neo4j, and its plan can be found in the Cypher query cache.
+ * Values must still be given as parameters.
+ */
+public class QueryRegistry {
+
+  private static final QueryRegistry INSTANCE = new QueryRegistry();
+
+  // Protect the registry against an unbounded number of arguments ( i.e. applications )
+  private static final int MAX_QUERIES = 10000;
+
+  private final Map<String, String> templates = new ConcurrentHashMap<>();
+  private final Map<List<Object>, String> queries = new ConcurrentHashMap<>();
+  private final Map<String, String> names = new ConcurrentHashMap<>();
+
+  private final AtomicLong hits = new AtomicLong(0);
+  private final AtomicLong misses = new AtomicLong(0);
+
+  public static QueryRegistry getInstance() {
+    return INSTANCE;
+  }
+
+  /**
+   * Register a named template
+   *
+   * @param name Unique name of the query
+   * @param template Template of the query
+   * @return The name of the query
+   * @throws IllegalArgumentException If another template is already registered with this name
+   */
+  public String register(String name, String template) {
+    String previous = templates.putIfAbsent(name, template);
+    if (previous != null && !previous.equals(template)) {
+      throw new IllegalArgumentException(
+          String.format("A different query is already registered with the name '%s'.", name));
+    }
+    return name;
+  }
+
+  /**
+   * Get the query formatted with its arguments
+   *
+   * @param name Name of the query
+   * @param arguments Arguments of the template
+   * @return The query
+   * @throws IllegalArgumentException If no template is registered with this name
+   */
+  public String get(String name, Object... arguments) {
+    List<Object> key = new ArrayList<>(arguments.length + 1);
+    key.add(name);
+    key.addAll(Arrays.asList(arguments));
+
+    String query = queries.get(key);
+    if (query != null) {
+      hits.incrementAndGet();
+      return query;
+    }
+
+    String template = templates.get(name);
+    if (template == null) {
+      throw new IllegalArgumentException(
+          String.format("No query is registered with the name '%s'.", name));
+    }
+
+    misses.incrementAndGet();
+    query = String.format(template, arguments);
+    if (queries.size() < MAX_QUERIES) {
+      queries.putIfAbsent(key, query);
+      names.putIfAbsent(query, name);
+    }
+    return query;
+  }
+
+  /**
+   * Find the name of a query formatted by the registry
+   *
+   * @param query Query
+   * @return The name of its template, or null if the query doesn't come from the registry
+   */
+  public String getName(String query) {
+    return names.get(query);
+  }
+
+  public int getNumTemplates() {
+    return templates.size();
+  }
+
+  public int getNumQueries() {
+    return queries.size();
+  }
+
+  public long getHits() {
+    return hits.get();
+  }
+
+  public long getMisses() {
+    return misses.get();
+  }
+
+  /**
+   * Ratio of the queries found already formatted
+   *
+   * @return The hit ratio between 0 and 1
+   */
+  public double getHitRatio() {
+    long total = hits.get() + misses.get();
+    return total == 0 ? 0.0 : (double) hits.get() / total;
+  }
+
+  /** Forget the formatted queries and reset the statistics. Templates are kept. */
+  public void clear() {
+    queries.clear();
+    names.clear();
+    hits.set(0);
+    misses.set(0);
+  }
+
+  @Override
+  public String toString() {
+    return String.format(
+        "Query registry : %d templates, %d queries, %d hits, %d misses (%.1f%% hit ratio)",
+        getNumTemplates(), getNumQueries(), getHits(), getMisses(), getHitRatio() * 100);
+  }
+
+  private QueryRegistry() {}
+}
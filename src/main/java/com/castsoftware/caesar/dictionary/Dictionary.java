@@ -2,17 +2,31 @@ package com.castsoftware.caesar.dictionary;
 
 import com.castsoftware.caesar.configuration.Configuration;
 import com.castsoftware.caesar.exceptions.file.MissingFileException;
+import org.neo4j.logging.Log;
 
 import java.io.BufferedReader;
 import java.io.IOException;
 import java.io.InputStream;
 import java.io.InputStreamReader;
+import java.net.URISyntaxException;
+import java.net.URL;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
 import java.util.*;
 
 public class Dictionary {
 
+	private static final String TEXT_FILE = "dictionary.txt";
+	private static final String COMPILED_FILE = "dictionary.bin";
+
 	private static Dictionary INSTANCE = null;
-	private Set<String> items;
+	private DictionaryTrie trie;
+
+	// Problems met while loading, logged by the first procedure using the dictionary
+	private final List<String> loadWarnings = new ArrayList<>();
+	private boolean warningsReported = false;
 
 	/**
 	 * Get the dictionary instance
@@ -32,16 +46,67 @@ public class Dictionary {
 	 * @return
 	 */
 	public Boolean search(String item) {
-		return this.items.contains(item);
+		return this.trie.contains(item);
 	}
 
-	private Dictionary() {
-		// Initialize
-		this.items = new HashSet<>();
+	/**
+	 * Length of the longest word of the dictionary starting at a position of a text
+	 * @param text Text to parse
+	 * @param from Start position in the text
+	 * @return The length of the word found, 0 if no word starts at this position
+	 */
+	public int longestPrefix(CharSequence text, int from) {
+		return this.trie.longestPrefix(text, from);
+	}
+
+	/**
+	 * Log the problems met while loading the dictionary. Only the first call logs them.
+	 * @param log Log of the procedure
+	 */
+	public synchronized void reportLoadWarnings(Log log) {
+		if (warningsReported) return;
+		warningsReported = true;
+		for (String warning : loadWarnings) {
+			log.warn(warning);
+		}
+	}
+
+	/**
+	 * Load the compiled dictionary produced at build time. The resource is memory-mapped in place if
+	 * it is a plain file, otherwise (packaged in the jar) it is extracted to a temporary file first.
+	 * @return The trie, or null if no compiled dictionary is available
+	 */
+	private DictionaryTrie loadCompiled() {
+		URL resource = Configuration.class.getClassLoader().getResource(COMPILED_FILE);
+		if (resource == null) return null;
+
+		try {
+			if ("file".equals(resource.getProtocol())) {
+				return DictionaryTrie.map(Paths.get(resource.toURI()));
+			}
+
+			Path extracted = Files.createTempFile("caesar_dictionary", ".bin");
+			extracted.toFile().deleteOnExit();
+			try (InputStream input = resource.openStream()) {
+				Files.copy(input, extracted, StandardCopyOption.REPLACE_EXISTING);
+			}
+			return DictionaryTrie.map(extracted);
+		} catch (IOException | URISyntaxException ex) {
+			loadWarnings.add(String.format("Failed to load the compiled dictionary, falling back to '%s'. %s", TEXT_FILE, ex.getMessage()));
+			return null;
+		}
+	}
+
+	/**
+	 * Parse the plain text dictionary, one word per line
+	 * @return The trie
+	 */
+	private DictionaryTrie loadText() {
+		List<String> items = new ArrayList<>();
 
 		// Load file
 		try (InputStream input =
-					 Configuration.class.getClassLoader().getResourceAsStream("dictionary.txt")) {
+					 Configuration.class.getClassLoader().getResourceAsStream(TEXT_FILE)) {
 
 			if (input == null) {
 				throw new MissingFileException(
@@ -55,14 +120,20 @@ public class Dictionary {
 
 			// Load line by line
 			String item;
-			while(reader.ready()) {
-				item = reader.readLine();
-				item = item.trim();
-				this.items.add(item);
+			while((item = reader.readLine()) != null) {
+				items.add(item.trim());
 			}
 
 		} catch (IOException | MissingFileException ex) {
-			System.err.println(ex.getMessage());
+			loadWarnings.add(ex.getMessage());
 		}
+
+		return DictionaryTrie.build(items);
+	}
+
+	private Dictionary() {
+		// Prefer the dictionary compiled at build time, the text file remains supported
+		DictionaryTrie compiled = loadCompiled();
+		this.trie = compiled != null ? compiled : loadText();
 	}
 }
@@ -0,0 +1,40 @@
+package com.castsoftware.caesar.dictionary;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.List;
+import java.util.stream.Collectors;
+
+/**
+ * Build step compiling the plain text dictionary into the binary trie loaded by {@link Dictionary}.
+ * Executed by Maven during the <code>process-classes</code> phase.
+ */
+public class DictionaryCompiler {
+
+	/**
+	 * Compile a dictionary
+	 * @param args Path of the plain text dictionary, and path of the binary file to produce
+	 * @throws IOException If the dictionary cannot be read or the output written
+	 */
+	public static void main(String[] args) throws IOException {
+		if (args.length != 2) {
+			throw new IllegalArgumentException("Usage: DictionaryCompiler <dictionary.txt> <dictionary.bin>");
+		}
+
+		Path source = Paths.get(args[0]);
+		Path target = Paths.get(args[1]);
+
+		List<String> words = Files.readAllLines(source, StandardCharsets.UTF_8).stream()
+				.map(String::trim)
+				.collect(Collectors.toList());
+
+		DictionaryTrie trie = DictionaryTrie.build(words);
+		trie.write(target);
+
+		System.out.printf("Dictionary compiled : %d words, %d nodes, %d bytes written to '%s'.%n",
+				words.size(), trie.getNumNodes(), Files.size(target), target);
+	}
+}
@@ -0,0 +1,291 @@
+package com.castsoftware.caesar.dictionary;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.IntBuffer;
+import java.nio.LongBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+import java.util.BitSet;
+
+/**
+ * Compact trie of the dictionary words, stored in primitive arrays.
+ *
+ * Nodes are numbered in breadth-first order, so the children of a node are contiguous and sorted by
+ * character : the children of node n are the nodes [childStart[n], childStart[n + 1]) and the
+ * character leading to a node is stored in labels. A lookup does not allocate any string.
+ *
+ * The arrays are accessed through buffers, so the trie can either live on the heap or be
+ * memory-mapped from its binary form (see {@link #write(Path)} and {@link #map(Path)}) :
+ * <pre>
+ * int magic, int version, int numNodes
+ * int[numNodes + 1] childStart
+ * long[(numNodes + 63) / 64] terminals (bitmap)
+ * char[numNodes] labels
+ * </pre>
+ */
+public class DictionaryTrie {
+
+	private static final int ROOT = 0;
+
+	private static final int MAGIC = 0x43444943; // "CDIC"
+	private static final int VERSION = 1;
+	private static final int HEADER_SIZE = 3 * Integer.BYTES;
+
+	private final int numNodes;
+	private final IntBuffer childStart;
+	private final CharBuffer labels;
+	private final LongBuffer terminals;
+
+	/**
+	 * Find the child of a node
+	 * @param node Parent node
+	 * @param c Character to follow
+	 * @return The child node or -1 if the character doesn't lead to any word
+	 */
+	private int child(int node, char c) {
+		int low = childStart.get(node);
+		int high = childStart.get(node + 1) - 1;
+
+		while (low <= high) {
+			int mid = (low + high) >>> 1;
+			char label = labels.get(mid);
+			if (label < c) low = mid + 1;
+			else if (label > c) high = mid - 1;
+			else return mid;
+		}
+		return -1;
+	}
+
+	/**
+	 * Check if a node ends a word
+	 * @param node Node to check
+	 * @return True if a word ends on this node
+	 */
+	private boolean isTerminal(int node) {
+		return (terminals.get(node >>> 6) & (1L << node)) != 0;
+	}
+
+	/**
+	 * Check if a word is present in the trie
+	 * @param word Word to search
+	 * @return True if the word is present
+	 */
+	public boolean contains(CharSequence word) {
+		int node = ROOT;
+		for (int i = 0; i < word.length() && node != -1; i++) {
+			node = child(node, word.charAt(i));
+		}
+		return node != -1 && isTerminal(node);
+	}
+
+	/**
+	 * Length of the longest word starting at a position of a text
+	 * @param text Text to parse
+	 * @param from Start position in the text
+	 * @return The length of the longest word found, or 0 if no word starts at this position
+	 */
+	public int longestPrefix(CharSequence text, int from) {
+		int longest = 0;
+		int node = ROOT;
+
+		for (int i = from; i < text.length(); i++) {
+			node = child(node, text.charAt(i));
+			if (node == -1) break;
+			if (isTerminal(node)) longest = i - from + 1;
+		}
+		return longest;
+	}
+
+	public int getNumNodes() {
+		return numNodes;
+	}
+
+	/**
+	 * Write the binary form of the trie
+	 * @param path File to write
+	 * @throws IOException If the file cannot be written
+	 */
+	public void write(Path path) throws IOException {
+		int numTerminals = (numNodes + 63) / 64;
+		ByteBuffer buffer = ByteBuffer.allocate(
+				HEADER_SIZE
+						+ (numNodes + 1) * Integer.BYTES
+						+ numTerminals * Long.BYTES
+						+ numNodes * Character.BYTES);
+
+		buffer.putInt(MAGIC).putInt(VERSION).putInt(numNodes);
+		for (int i = 0; i <= numNodes; i++) buffer.putInt(childStart.get(i));
+		for (int i = 0; i < numTerminals; i++) buffer.putLong(terminals.get(i));
+		for (int i = 0; i < numNodes; i++) buffer.putChar(labels.get(i));
+		buffer.flip();
+
+		try (FileChannel channel = FileChannel.open(path, StandardOpenOption.CREATE,
+				StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)) {
+			while (buffer.hasRemaining()) channel.write(buffer);
+		}
+	}
+
+	/**
+	 * Memory-map the binary form of a trie. The content is not copied on the heap.
+	 * @param path File produced by {@link #write(Path)}
+	 * @return The trie
+	 * @throws IOException If the file cannot be read or is not a valid dictionary
+	 */
+	public static DictionaryTrie map(Path path) throws IOException {
+		try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+			MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+			return read(buffer);
+		}
+	}
+
+	/**
+	 * Read the binary form of a trie
+	 * @param buffer Buffer holding the content of a file produced by {@link #write(Path)}
+	 * @return The trie, backed by the buffer
+	 * @throws IOException If the buffer is not a valid dictionary
+	 */
+	public static DictionaryTrie read(ByteBuffer buffer) throws IOException {
+		if (buffer.remaining() < HEADER_SIZE
+				|| buffer.getInt(0) != MAGIC
+				|| buffer.getInt(Integer.BYTES) != VERSION) {
+			throw new IOException("The file is not a compiled dictionary or its version is not supported.");
+		}
+
+		int numNodes = buffer.getInt(2 * Integer.BYTES);
+		int numTerminals = (numNodes + 63) / 64;
+		int childOffset = HEADER_SIZE;
+		int terminalOffset = childOffset + (numNodes + 1) * Integer.BYTES;
+		int labelOffset = terminalOffset + numTerminals * Long.BYTES;
+		int end = labelOffset + numNodes * Character.BYTES;
+
+		if (numNodes <= 0 || buffer.limit() < end) {
+			throw new IOException("The compiled dictionary is truncated.");
+		}
+
+		return new DictionaryTrie(numNodes,
+				slice(buffer, childOffset, terminalOffset).asIntBuffer(),
+				slice(buffer, labelOffset, end).asCharBuffer(),
+				slice(buffer, terminalOffset, labelOffset).asLongBuffer());
+	}
+
+	private static ByteBuffer slice(ByteBuffer buffer, int from, int to) {
+		ByteBuffer duplicate = buffer.duplicate();
+		duplicate.position(from).limit(to);
+		return duplicate.slice();
+	}
+
+	/**
+	 * Build the trie from a list of words. Empty words are ignored.
+	 * @param words Words to insert
+	 * @return The trie
+	 */
+	public static DictionaryTrie build(Iterable<String> words) {
+		Builder builder = new Builder();
+		for (String word : words) {
+			if (word.isEmpty()) continue;
+			builder.insert(word);
+		}
+		return builder.freeze();
+	}
+
+	/**
+	 * Constructor
+	 * @param numNodes Number of nodes, including the root
+	 * @param childStart Offset of the first child of each node (size n + 1)
+	 * @param labels Character leading to each node
+	 * @param terminals Bitmap of the nodes ending a word
+	 */
+	private DictionaryTrie(int numNodes, IntBuffer childStart, CharBuffer labels, LongBuffer terminals) {
+		this.numNodes = numNodes;
+		this.childStart = childStart;
+		this.labels = labels;
+		this.terminals = terminals;
+	}
+
+	/**
+	 * Mutable trie used during the loading. Children are kept as sorted linked lists
+	 * (first child / next sibling), then renumbered in breadth-first order by {@link #freeze()}.
+	 */
+	private static class Builder {
+		private int[] firstChild = new int[1 << 16];
+		private int[] nextSibling = new int[1 << 16];
+		private char[] labels = new char[1 << 16];
+		private final BitSet terminals = new BitSet();
+		private int size;
+
+		private Builder() {
+			Arrays.fill(firstChild, -1);
+			Arrays.fill(nextSibling, -1);
+			size = 1; // Root
+		}
+
+		private int newNode(char c) {
+			if (size == labels.length) {
+				int capacity = size * 2;
+				firstChild = Arrays.copyOf(firstChild, capacity);
+				nextSibling = Arrays.copyOf(nextSibling, capacity);
+				labels = Arrays.copyOf(labels, capacity);
+				Arrays.fill(firstChild, size, capacity, -1);
+				Arrays.fill(nextSibling, size, capacity, -1);
+			}
+			labels[size] = c;
+			return size++;
+		}
+
+		private int getOrCreateChild(int node, char c) {
+			int previous = -1;
+			int current = firstChild[node];
+			while (current != -1 && labels[current] < c) {
+				previous = current;
+				current = nextSibling[current];
+			}
+			if (current != -1 && labels[current] == c) return current;
+
+			int created = newNode(c);
+			nextSibling[created] = current;
+			if (previous == -1) firstChild[node] = created;
+			else nextSibling[previous] = created;
+			return created;
+		}
+
+		private void insert(String word) {
+			int node = ROOT;
+			for (int i = 0; i < word.length(); i++) {
+				node = getOrCreateChild(node, word.charAt(i));
+			}
+			terminals.set(node);
+		}
+
+		private DictionaryTrie freeze() {
+			int[] childStart = new int[size + 1];
+			char[] frozenLabels = new char[size];
+			BitSet frozenTerminals = new BitSet(size);
+
+			// Breadth-first renumbering, the queue holds the old ids in the new order
+			int[] queue = new int[size];
+			int tail = 1;
+			queue[0] = ROOT;
+
+			for (int head = 0; head < size; head++) {
+				int old = queue[head];
+				frozenLabels[head] = labels[old];
+				if (terminals.get(old)) frozenTerminals.set(head);
+
+				childStart[head] = tail;
+				for (int c = firstChild[old]; c != -1; c = nextSibling[c]) {
+					queue[tail++] = c;
+				}
+			}
+			childStart[size] = tail;
+
+			long[] terminalWords = Arrays.copyOf(frozenTerminals.toLongArray(), (size + 63) / 64);
+			return new DictionaryTrie(size, IntBuffer.wrap(childStart), CharBuffer.wrap(frozenLabels),
+					LongBuffer.wrap(terminalWords));
+		}
+	}
+}
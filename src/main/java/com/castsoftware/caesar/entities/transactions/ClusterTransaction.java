@@ -2,6 +2,7 @@ package com.castsoftware.caesar.entities.transactions;
 
 import com.castsoftware.caesar.database.Neo4jAL;
 import com.castsoftware.caesar.exceptions.neo4j.Neo4jBadRequestException;
+import com.castsoftware.caesar.sdk.TransactionSnapshot;
 import com.castsoftware.caesar.sdk.Transactions;
 import org.neo4j.graphdb.Node;
 
@@ -89,6 +90,20 @@ public class ClusterTransaction {
 		return this.uniqueness;
 	}
 
+	/**
+	 * Get the size of the cluster and its uniqueness from the snapshot of the application
+	 * @param snapshot Snapshot of the application
+	 * @return The uniqueness of the cluster
+	 * @throws Neo4jBadRequestException
+	 */
+	public Double computeSizeMetrics(TransactionSnapshot snapshot) throws Neo4jBadRequestException {
+		this.objectSize = Transactions.getTransactionsSize(snapshot, this.transactionsId);
+		long sharedObjects = Transactions.getNumberSharedObjects(snapshot, this.transactionsId);
+
+		this.uniqueness = 1 - (double) sharedObjects / this.objectSize;
+		return this.uniqueness;
+	}
+
 	/**
 	 * Constructor
 	 * @param name Name of the cluster
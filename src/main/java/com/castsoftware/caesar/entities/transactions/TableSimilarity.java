@@ -0,0 +1,61 @@
+package com.castsoftware.caesar.entities.transactions;
+
+/**
+ * Usage of a database table by the transactions of a source and of a target application. The
+ * transactions of the two applications are matched by their name.
+ */
+public class TableSimilarity {
+
+	private final String table;
+	private final int sourceTransactions;
+	private final int targetTransactions;
+	private final int sharedTransactions;
+
+	public String getTable() {
+		return table;
+	}
+
+	/**
+	 * @return Number of source transactions using the table, 0 if the table is only in the target
+	 */
+	public int getSourceTransactions() {
+		return sourceTransactions;
+	}
+
+	/**
+	 * @return Number of target transactions using the table, 0 if the table is only in the source
+	 */
+	public int getTargetTransactions() {
+		return targetTransactions;
+	}
+
+	/**
+	 * @return Number of transactions using the table in both applications
+	 */
+	public int getSharedTransactions() {
+		return sharedTransactions;
+	}
+
+	/**
+	 * @return Percentage of the source transactions using the table also using it in the target.
+	 * 0 if the table is only in the target.
+	 */
+	public double getSimilarity() {
+		if (sourceTransactions == 0) return 0.0;
+		return 100.0 * sharedTransactions / sourceTransactions;
+	}
+
+	/**
+	 * Constructor
+	 * @param table FullName of the table
+	 * @param sourceTransactions Number of source transactions using the table
+	 * @param targetTransactions Number of target transactions using the table
+	 * @param sharedTransactions Number of transactions using the table in both applications
+	 */
+	public TableSimilarity(String table, int sourceTransactions, int targetTransactions, int sharedTransactions) {
+		this.table = table;
+		this.sourceTransactions = sourceTransactions;
+		this.targetTransactions = targetTransactions;
+		this.sharedTransactions = sharedTransactions;
+	}
+}
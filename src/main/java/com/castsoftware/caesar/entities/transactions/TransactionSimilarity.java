@@ -0,0 +1,126 @@
+package com.castsoftware.caesar.entities.transactions;
+
+/**
+ * Similarity between a transaction of a source application and one of its closest transactions
+ * in a target application. The target is either found by its name (similar), or by its objects
+ * (different), in which case several targets can be ranked.
+ */
+public class TransactionSimilarity {
+
+	private final boolean similar;
+	private final int rank;
+
+	private final long sourceId;
+	private final String sourceName;
+	private final int sourceSize;
+
+	private final long targetId;
+	private final String targetName;
+	private final int targetSize;
+
+	private final double objectSimilarity;
+	private final double databaseSimilarity;
+
+	public boolean isSimilar() {
+		return similar;
+	}
+
+	/**
+	 * @return Rank of the target among the closest targets of the source, starting at 1
+	 */
+	public int getRank() {
+		return rank;
+	}
+
+	/**
+	 * @return True if a target transaction was found
+	 */
+	public boolean hasTarget() {
+		return targetId >= 0;
+	}
+
+	public long getSourceId() {
+		return sourceId;
+	}
+
+	public String getSourceName() {
+		return sourceName;
+	}
+
+	public int getSourceSize() {
+		return sourceSize;
+	}
+
+	public long getTargetId() {
+		return targetId;
+	}
+
+	public String getTargetName() {
+		return targetName;
+	}
+
+	public int getTargetSize() {
+		return targetSize;
+	}
+
+	/**
+	 * @return Percentage of the objects of the source present in the target
+	 */
+	public double getObjectSimilarity() {
+		return objectSimilarity;
+	}
+
+	/**
+	 * @return Percentage of the tables of the source present in the target
+	 */
+	public double getDatabaseSimilarity() {
+		return databaseSimilarity;
+	}
+
+	/**
+	 * Constructor of the closest target
+	 * @param similar True if the target was found by its name
+	 * @param sourceId Id of the source transaction
+	 * @param sourceName Name of the source transaction
+	 * @param sourceSize Number of objects in the source transaction
+	 * @param targetId Id of the target transaction, -1 if none was found
+	 * @param targetName Name of the target transaction
+	 * @param targetSize Number of objects in the target transaction
+	 * @param objectSimilarity Percentage of similar objects
+	 * @param databaseSimilarity Percentage of similar tables
+	 */
+	public TransactionSimilarity(boolean similar, long sourceId, String sourceName, int sourceSize,
+								 long targetId, String targetName, int targetSize,
+								 double objectSimilarity, double databaseSimilarity) {
+		this(similar, 1, sourceId, sourceName, sourceSize, targetId, targetName, targetSize,
+				objectSimilarity, databaseSimilarity);
+	}
+
+	/**
+	 * Constructor
+	 * @param similar True if the target was found by its name
+	 * @param rank Rank of the target among the closest targets of the source, starting at 1
+	 * @param sourceId Id of the source transaction
+	 * @param sourceName Name of the source transaction
+	 * @param sourceSize Number of objects in the source transaction
+	 * @param targetId Id of the target transaction, -1 if none was found
+	 * @param targetName Name of the target transaction
+	 * @param targetSize Number of objects in the target transaction
+	 * @param objectSimilarity Percentage of similar objects
+	 * @param databaseSimilarity Percentage of similar tables
+	 */
+	public TransactionSimilarity(boolean similar, int rank, long sourceId, String sourceName, int sourceSize,
+								 long targetId, String targetName, int targetSize,
+								 double objectSimilarity, double databaseSimilarity) {
+		this.similar = similar;
+		this.rank = rank;
+		this.sourceId = sourceId;
+		this.sourceName = sourceName;
+		this.sourceSize = sourceSize;
+		this.targetId = targetId;
+		this.targetName = targetName;
+		this.targetSize = targetSize;
+		this.objectSimilarity = objectSimilarity;
+		this.databaseSimilarity = databaseSimilarity;
+	}
+}
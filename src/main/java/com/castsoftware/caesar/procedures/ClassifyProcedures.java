@@ -37,7 +37,7 @@ public class ClassifyProcedures {
 			Neo4jAL nal = new Neo4jAL(db, transaction, log);
 
 			ClassifyController microController = new ClassifyController(nal, application);
-			return microController.classifyTransaction(minimumSize).stream();
+			return microController.classifyTransaction(minimumSize);
 
 		} catch (Exception | Neo4jConnectionError | Neo4jQueryException | FileCorruptedException | Neo4jBadRequestException | MissingWorkspaceException | MissingFileException e) {
 			ProcedureException ex = new ProcedureException(e);
@@ -55,7 +55,7 @@ public class ClassifyProcedures {
 			Neo4jAL nal = new Neo4jAL(db, transaction, log);
 
 			ClassifyController classifyController = new ClassifyController(nal, application);
-			return classifyController.weightTransactionCategory(minimumSize).stream().map(ClusterTransactionResult::new);
+			return classifyController.weightTransactionCategory(minimumSize).map(ClusterTransactionResult::new);
 
 		} catch (Exception | Neo4jConnectionError | Neo4jQueryException | FileCorruptedException | Neo4jBadRequestException | MissingWorkspaceException | MissingFileException e) {
 			ProcedureException ex = new ProcedureException(e);
@@ -6,6 +6,7 @@ import com.castsoftware.caesar.exceptions.ProcedureException;
 import com.castsoftware.caesar.exceptions.neo4j.Neo4jConnectionError;
 import com.castsoftware.caesar.exceptions.neo4j.Neo4jNoResult;
 import com.castsoftware.caesar.exceptions.neo4j.Neo4jQueryException;
+import com.castsoftware.caesar.results.PhaseResult;
 import org.neo4j.graphdb.GraphDatabaseService;
 import org.neo4j.graphdb.Transaction;
 import org.neo4j.logging.Log;
@@ -24,14 +25,19 @@ public class DivideProcedures {
 	@Context public Log log;
 
 	@Procedure(value = "caesar.divide.level.per.transaction", mode = Mode.WRITE)
-	@Description("caesar.divide.level.per.transaction(String application, String levelName) - Break one level in the application")
-	public void divideLevelTransaction(@Name(value = "Application") String application,
-									   @Name(value = "LevelName") String levelName) throws ProcedureException {
+	@Description("caesar.divide.level.per.transaction(String application, String levelName, Optional Long concurrency, Optional Long commitBatchSize) - Break one level in the application. " +
+			"The label propagation uses concurrency threads, all the available cores by default or with 0. " +
+			"With a commitBatchSize above 0, the similarity links are committed by batches in separate transactions, and an interrupted run can be resumed. " +
+			"Returns the wall time, CPU time, allocated bytes and number of queries of each step.")
+	public Stream<PhaseResult> divideLevelTransaction(@Name(value = "Application") String application,
+									   @Name(value = "LevelName") String levelName,
+									   @Name(value = "Concurrency", defaultValue = "0") Long concurrency,
+									   @Name(value = "CommitBatchSize", defaultValue = "0") Long commitBatchSize) throws ProcedureException {
 
 		try {
 			Neo4jAL nal = new Neo4jAL(db, transaction, log);
-			DivideController dc = new DivideController(nal, application, levelName);
-			dc.run();
+			DivideController dc = new DivideController(nal, application, levelName, concurrency == null ? 0 : concurrency.intValue(), commitBatchSize.intValue());
+			return dc.run().stream().map(PhaseResult::new);
 		} catch (Exception | Neo4jConnectionError | Neo4jQueryException | Neo4jNoResult e) {
 			ProcedureException ex = new ProcedureException(e);
 			log.error("An error occurred while executing the procedure", e);
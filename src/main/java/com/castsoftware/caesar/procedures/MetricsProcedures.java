@@ -0,0 +1,31 @@
+package com.castsoftware.caesar.procedures;
+
+import com.castsoftware.caesar.database.QueryMetrics;
+import com.castsoftware.caesar.results.QueryMetricResult;
+import org.neo4j.logging.Log;
+import org.neo4j.procedure.*;
+
+import java.util.Comparator;
+import java.util.List;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+public class MetricsProcedures {
+
+	@Context public Log log;
+
+	@Procedure(value = "caesar.metrics.queries", mode = Mode.READ)
+	@Description("caesar.metrics.queries(Optional Boolean reset) - Get the latency statistics of the queries executed by the extension, sorted by total time. " +
+			"Read-only queries dropped before being consumed are counted in calls only. With reset, the statistics are cleared once returned.")
+	public Stream<QueryMetricResult> queries(@Name(value = "Reset", defaultValue = "false") Boolean reset) {
+		QueryMetrics metrics = QueryMetrics.getInstance();
+
+		List<QueryMetricResult> results = metrics.getEntries().stream()
+				.map(QueryMetricResult::new)
+				.sorted(Comparator.comparingDouble((QueryMetricResult r) -> r.totalMs).reversed())
+				.collect(Collectors.toList());
+
+		if (reset) metrics.reset();
+		return results.stream();
+	}
+}
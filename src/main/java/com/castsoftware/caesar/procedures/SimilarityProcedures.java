@@ -3,11 +3,14 @@ package com.castsoftware.caesar.procedures;
 import com.castsoftware.caesar.controllers.SimilarityController;
 import com.castsoftware.caesar.database.Neo4jAL;
 import com.castsoftware.caesar.exceptions.ProcedureException;
+import com.castsoftware.caesar.exceptions.file.FileIOException;
 import com.castsoftware.caesar.exceptions.neo4j.Neo4jBadRequestException;
 import com.castsoftware.caesar.exceptions.neo4j.Neo4jConnectionError;
 import com.castsoftware.caesar.exceptions.neo4j.Neo4jQueryException;
 import com.castsoftware.caesar.exceptions.workspace.MissingWorkspaceException;
 import com.castsoftware.caesar.results.OutputMessage;
+import com.castsoftware.caesar.results.SimilarityResult;
+import com.castsoftware.caesar.results.TableSimilarityResult;
 import com.castsoftware.caesar.workspace.Workspace;
 import org.neo4j.graphdb.GraphDatabaseService;
 import org.neo4j.graphdb.Transaction;
@@ -27,20 +30,46 @@ public class SimilarityProcedures {
 	@Context public Log log;
 
 	@Procedure(value = "caesar.similarity.transactions", mode = Mode.WRITE)
-	@Description("CALL caesar.similarity.transactions(String source, String target, String path) - Check transaction similarity")
-	public void simiCheckTransaction(@Name(value = "Source") String source, @Name(value = "Target") String target ,@Name(value = "Path") String path) throws ProcedureException {
+	@Description("CALL caesar.similarity.transactions(String source, String target, Optional String path, Optional Boolean compress, Optional Long concurrency, Optional Long topK, Optional Boolean refresh) - Check transaction similarity. " +
+			"Returns the target transaction with the same name of each source transaction, or its topK closest targets, ranked. If a path is given, the results are also written in this folder, in gzip files if compress is true. " +
+			"The source transactions are compared by concurrency workers, one per available core by default or with 0. " +
+			"With refresh, the results are stored in the graph with the hash of the objects of each transaction, and only the transactions changed since the previous refresh of the same source and target are rescored.")
+	public Stream<SimilarityResult> simiCheckTransaction(@Name(value = "Source") String source, @Name(value = "Target") String target,
+									 @Name(value = "Path", defaultValue = "") String path,
+									 @Name(value = "Compress", defaultValue = "false") Boolean compress,
+									 @Name(value = "Concurrency", defaultValue = "0") Long concurrency,
+									 @Name(value = "TopK", defaultValue = "1") Long topK,
+									 @Name(value = "Refresh", defaultValue = "false") Boolean refresh) throws ProcedureException {
 
 		try {
 			Neo4jAL nal = new Neo4jAL(db, transaction, log);
 
-			SimilarityController simControl = new SimilarityController(nal, source, target, path);
-			simControl.run();
+			SimilarityController simControl = new SimilarityController(nal, source, target, path, compress != null && compress, concurrency == null ? 0 : concurrency.intValue(), topK.intValue(), refresh != null && refresh);
+			return simControl.run().stream().map(SimilarityResult::new);
 
-		} catch (Exception | Neo4jConnectionError | Neo4jQueryException e) {
+		} catch (Exception | Neo4jConnectionError | Neo4jQueryException | FileIOException e) {
 			ProcedureException ex = new ProcedureException(e);
 			log.error("An error occurred while executing the procedure: caesar.similarity.transactions", e);
 			throw ex;
 		}
 	}
 
+	@Procedure(value = "caesar.similarity.database", mode = Mode.READ)
+	@Description("CALL caesar.similarity.database(String source, String target) - Check database similarity. " +
+			"Returns each table of the two applications, with the number of transactions using it in the source, in the target, and in both.")
+	public Stream<TableSimilarityResult> simiCheckDatabase(@Name(value = "Source") String source, @Name(value = "Target") String target) throws ProcedureException {
+
+		try {
+			Neo4jAL nal = new Neo4jAL(db, transaction, log);
+
+			SimilarityController simControl = new SimilarityController(nal, source, target);
+			return simControl.runDatabase().stream().map(TableSimilarityResult::new);
+
+		} catch (Exception | Neo4jConnectionError | Neo4jQueryException e) {
+			ProcedureException ex = new ProcedureException(e);
+			log.error("An error occurred while executing the procedure: caesar.similarity.database", e);
+			throw ex;
+		}
+	}
+
 }
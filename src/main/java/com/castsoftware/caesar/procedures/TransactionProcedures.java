@@ -17,7 +17,6 @@ import org.neo4j.graphdb.Transaction;
 import org.neo4j.logging.Log;
 import org.neo4j.procedure.*;
 
-import java.util.List;
 import java.util.stream.Stream;
 
 /**
@@ -41,9 +40,7 @@ public class TransactionProcedures {
 			Neo4jAL nal = new Neo4jAL(db, transaction, log);
 
 			TransactionController transactionController = new TransactionController(nal, application);
-			List<com.castsoftware.caesar.entities.transactions.Transaction> transactionList = transactionController.getTransactions(minimumSize.intValue());
-
-			return transactionList.stream().map(TransactionResult::new);
+			return transactionController.getTransactions(minimumSize.intValue()).map(TransactionResult::new);
 		} catch (Exception | Neo4jConnectionError | Neo4jQueryException | Neo4jBadRequestException | FileCorruptedException | MissingWorkspaceException | MissingFileException e) {
 			ProcedureException ex = new ProcedureException(e);
 			log.error("An error occurred while executing the procedure: caesar.transactions.list", e);
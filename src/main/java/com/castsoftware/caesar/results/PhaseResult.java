@@ -0,0 +1,24 @@
+package com.castsoftware.caesar.results;
+
+import com.castsoftware.caesar.services.profiling.PhaseProfiler;
+
+public class PhaseResult {
+
+	public String phase;
+	public Long wallTimeMs;
+	public Long cpuTimeMs;
+	public Long allocatedBytes;
+	public Long queries;
+
+	/**
+	 * Profile of a phase. Measures not supported by the JVM are -1.
+	 * @param phase Phase profiled
+	 */
+	public PhaseResult(PhaseProfiler.Phase phase) {
+		this.phase = phase.getName();
+		this.wallTimeMs = phase.getWallTimeMs();
+		this.cpuTimeMs = phase.getCpuTimeMs();
+		this.allocatedBytes = phase.getAllocatedBytes();
+		this.queries = phase.getQueries();
+	}
+}
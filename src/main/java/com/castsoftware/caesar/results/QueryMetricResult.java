@@ -0,0 +1,42 @@
+package com.castsoftware.caesar.results;
+
+import com.castsoftware.caesar.database.LatencyHistogram;
+import com.castsoftware.caesar.database.QueryMetrics;
+
+public class QueryMetricResult {
+
+	public String query;
+	public Long calls;
+	public Long completed;
+	public Long rows;
+	public Long slowCalls;
+
+	// Latencies in milliseconds
+	public Double totalMs;
+	public Double meanMs;
+	public Double p50Ms;
+	public Double p90Ms;
+	public Double p99Ms;
+	public Double maxMs;
+
+	/**
+	 * Statistics of a query
+	 * @param entry Statistics recorded for the query
+	 */
+	public QueryMetricResult(QueryMetrics.Entry entry) {
+		LatencyHistogram latencies = entry.getLatencies();
+
+		this.query = entry.getName();
+		this.calls = entry.getCalls();
+		this.completed = latencies.getCount();
+		this.rows = entry.getRows();
+		this.slowCalls = entry.getSlowCalls();
+
+		this.totalMs = latencies.getTotal() / 1000.0;
+		this.meanMs = latencies.getMean() / 1000.0;
+		this.p50Ms = latencies.getValueAtPercentile(50) / 1000.0;
+		this.p90Ms = latencies.getValueAtPercentile(90) / 1000.0;
+		this.p99Ms = latencies.getValueAtPercentile(99) / 1000.0;
+		this.maxMs = latencies.getMax() / 1000.0;
+	}
+}
@@ -0,0 +1,34 @@
+package com.castsoftware.caesar.results;
+
+import com.castsoftware.caesar.entities.transactions.TransactionSimilarity;
+
+public class SimilarityResult {
+
+	public String type;
+	public Long rank;
+	public Long sourceId;
+	public String sourceName;
+	public Long sourceSize;
+	public Long targetId;
+	public String targetName;
+	public Long targetSize;
+	public Double objectSimilarity;
+	public Double databaseSimilarity;
+
+	/**
+	 * Similarity of a source transaction. The target is null if no transaction was found.
+	 * @param similarity Similarity computed
+	 */
+	public SimilarityResult(TransactionSimilarity similarity) {
+		this.type = similarity.isSimilar() ? "Similar" : "Different";
+		this.rank = (long) similarity.getRank();
+		this.sourceId = similarity.getSourceId();
+		this.sourceName = similarity.getSourceName();
+		this.sourceSize = (long) similarity.getSourceSize();
+		this.targetId = similarity.hasTarget() ? similarity.getTargetId() : null;
+		this.targetName = similarity.hasTarget() ? similarity.getTargetName() : null;
+		this.targetSize = (long) similarity.getTargetSize();
+		this.objectSimilarity = similarity.getObjectSimilarity();
+		this.databaseSimilarity = similarity.getDatabaseSimilarity();
+	}
+}
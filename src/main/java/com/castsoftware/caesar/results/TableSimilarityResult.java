@@ -0,0 +1,28 @@
+package com.castsoftware.caesar.results;
+
+import com.castsoftware.caesar.entities.transactions.TableSimilarity;
+
+public class TableSimilarityResult {
+
+	public String table;
+	public Boolean inSource;
+	public Boolean inTarget;
+	public Long sourceTransactions;
+	public Long targetTransactions;
+	public Long sharedTransactions;
+	public Double similarity;
+
+	/**
+	 * Usage of a table in the two applications
+	 * @param similarity Similarity computed
+	 */
+	public TableSimilarityResult(TableSimilarity similarity) {
+		this.table = similarity.getTable();
+		this.inSource = similarity.getSourceTransactions() > 0;
+		this.inTarget = similarity.getTargetTransactions() > 0;
+		this.sourceTransactions = (long) similarity.getSourceTransactions();
+		this.targetTransactions = (long) similarity.getTargetTransactions();
+		this.sharedTransactions = (long) similarity.getSharedTransactions();
+		this.similarity = similarity.getSimilarity();
+	}
+}
@@ -0,0 +1,457 @@
+package com.castsoftware.caesar.sdk;
+
+import com.castsoftware.caesar.database.Neo4jAL;
+import com.castsoftware.caesar.exceptions.neo4j.Neo4jBadRequestException;
+import com.castsoftware.caesar.exceptions.neo4j.Neo4jQueryException;
+import org.neo4j.graphdb.Node;
+import org.neo4j.graphdb.Result;
+
+import java.util.*;
+
+/**
+ * In-memory snapshot of the (:Transaction)-[:Contains]->(:Object) membership of one application.
+ * Transactions and objects are identified by an index, and the membership is stored as
+ * adjacency arrays (CSR): the objects of the transaction <code>t</code> are in <code>
+ * transactionObjects[transactionOffsets[t]]</code> to <code>
+ * transactionObjects[transactionOffsets[t + 1] - 1]</code>, sorted by index.
+ *
+ * The snapshot is built from a single query and is meant to be shared by the different steps of a
+ * procedure call. It is not updated if the graph changes.
+ */
+public class TransactionSnapshot {
+
+	private static final String LOAD_QUERY = Neo4jAL.registerQuery("snapshot.load",
+			"MATCH (t:Transaction:`%1$s`) "
+					+ "OPTIONAL MATCH (t)-[:Contains]->(o:Object:`%1$s`) "
+					+ "RETURN ID(t) as idTransaction, t.Name as name, t.FullName as fullName, "
+					+ "COLLECT(DISTINCT ID(o)) as objects");
+
+	private final String application;
+
+	// Transactions
+	private final long[] transactionIds;
+	private final String[] names;
+	private final String[] fullNames;
+	private final int[] transactionOffsets;
+	private final int[] transactionObjects;
+	private final Map<Long, Integer> transactionIndexes;
+
+	// Objects
+	private final long[] objectIds;
+	private int[] objectOffsets = null;
+	private int[] objectTransactions = null;
+
+	// Optional object properties
+	private String[] objectFullNames = null;
+	private BitSet objectTables = null;
+
+	/**
+	 * Load the snapshot of an application
+	 * @param neo4jAL Neo4j Access Layer
+	 * @param application Name of the application
+	 * @return The snapshot
+	 * @throws Neo4jBadRequestException If the request failed
+	 */
+	public static TransactionSnapshot load(Neo4jAL neo4jAL, String application) throws Neo4jBadRequestException {
+		String request = neo4jAL.getQuery(LOAD_QUERY, application);
+
+		try {
+			Result results = neo4jAL.executeQuery(request);
+
+			List<Long> transactionIds = new ArrayList<>();
+			List<String> names = new ArrayList<>();
+			List<String> fullNames = new ArrayList<>();
+			List<Long> objectIds = new ArrayList<>();
+			Map<Long, Integer> objectIndexes = new HashMap<>();
+
+			int[] offsets = new int[16];
+			int[] objects = new int[1024];
+			int numObjects = 0;
+
+			while (results.hasNext()) {
+				Map<String, Object> r = results.next();
+				List<?> ids = (List<?>) r.get("objects");
+
+				if (transactionIds.size() + 1 >= offsets.length) offsets = Arrays.copyOf(offsets, offsets.length * 2);
+				if (numObjects + ids.size() > objects.length)
+					objects = Arrays.copyOf(objects, Math.max(objects.length * 2, numObjects + ids.size()));
+
+				for (Object id : ids) {
+					Long idObject = (Long) id;
+					Integer index = objectIndexes.get(idObject);
+					if (index == null) {
+						index = objectIds.size();
+						objectIndexes.put(idObject, index);
+						objectIds.add(idObject);
+					}
+					objects[numObjects++] = index;
+				}
+
+				transactionIds.add((Long) r.get("idTransaction"));
+				names.add((String) r.get("name"));
+				fullNames.add((String) r.get("fullName"));
+				offsets[transactionIds.size()] = numObjects;
+			}
+
+			return new TransactionSnapshot(
+					application,
+					transactionIds.stream().mapToLong(Long::longValue).toArray(),
+					names.toArray(new String[0]),
+					fullNames.toArray(new String[0]),
+					Arrays.copyOf(offsets, transactionIds.size() + 1),
+					Arrays.copyOf(objects, numObjects),
+					objectIds.stream().mapToLong(Long::longValue).toArray());
+		} catch (Neo4jQueryException e) {
+			throw new Neo4jBadRequestException("Failed to load the snapshot of the transactions", e, "TRASxLOAD1");
+		}
+	}
+
+	/**
+	 * Load the FullName and the table flag of the objects in the snapshot, through the core API
+	 * @param neo4jAL Neo4j Access Layer
+	 * @return The snapshot
+	 * @throws Neo4jQueryException If an object cannot be retrieved
+	 */
+	public TransactionSnapshot loadObjectProperties(Neo4jAL neo4jAL) throws Neo4jQueryException {
+		if (objectFullNames != null) return this;
+
+		String[] fullNames = new String[objectIds.length];
+		BitSet tables = new BitSet(objectIds.length);
+
+		for (int o = 0; o < objectIds.length; o++) {
+			Node n = neo4jAL.getNodeById(objectIds[o]);
+			if (n == null) continue;
+
+			fullNames[o] = (String) n.getProperty("FullName", null);
+			Object type = n.getProperty("Type", null);
+			if (type instanceof String && ((String) type).contains("Table")) tables.set(o);
+		}
+
+		this.objectFullNames = fullNames;
+		this.objectTables = tables;
+		return this;
+	}
+
+	/**
+	 * Get a snapshot restricted to the transactions having more than a minimum number of objects.
+	 * The objects indexes are kept.
+	 * @param minSize Minimum size (excluded)
+	 * @return The filtered snapshot
+	 */
+	public TransactionSnapshot filterBySize(int minSize) {
+		int count = 0;
+		int numObjects = 0;
+		for (int t = 0; t < getNumTransactions(); t++) {
+			if (size(t) > minSize) {
+				count++;
+				numObjects += size(t);
+			}
+		}
+
+		long[] ids = new long[count];
+		String[] filteredNames = new String[count];
+		String[] filteredFullNames = new String[count];
+		int[] offsets = new int[count + 1];
+		int[] objects = new int[numObjects];
+
+		int i = 0;
+		for (int t = 0; t < getNumTransactions(); t++) {
+			if (size(t) <= minSize) continue;
+
+			ids[i] = transactionIds[t];
+			filteredNames[i] = names[t];
+			filteredFullNames[i] = fullNames[t];
+			System.arraycopy(transactionObjects, transactionOffsets[t], objects, offsets[i], size(t));
+			offsets[i + 1] = offsets[i] + size(t);
+			i++;
+		}
+
+		TransactionSnapshot filtered = new TransactionSnapshot(
+				application, ids, filteredNames, filteredFullNames, offsets, objects, objectIds);
+		filtered.objectFullNames = this.objectFullNames;
+		filtered.objectTables = this.objectTables;
+		return filtered;
+	}
+
+	/**
+	 * Build the object to transactions index
+	 */
+	private void buildObjectIndex() {
+		int numObjects = objectIds.length;
+		int[] offsets = new int[numObjects + 1];
+		int[] transactions = new int[transactionObjects.length];
+
+		// Degree of each object
+		for (int object : transactionObjects) offsets[object + 1]++;
+		for (int o = 0; o < numObjects; o++) offsets[o + 1] += offsets[o];
+
+		// Fill the transactions of each object
+		int[] cursor = Arrays.copyOf(offsets, numObjects);
+		for (int t = 0; t < getNumTransactions(); t++) {
+			for (int i = transactionOffsets[t]; i < transactionOffsets[t + 1]; i++) {
+				transactions[cursor[transactionObjects[i]]++] = t;
+			}
+		}
+
+		this.objectOffsets = offsets;
+		this.objectTransactions = transactions;
+	}
+
+	// Transactions
+
+	public String getApplication() {
+		return application;
+	}
+
+	public int getNumTransactions() {
+		return transactionIds.length;
+	}
+
+	public long getTransactionId(int transaction) {
+		return transactionIds[transaction];
+	}
+
+	public String getName(int transaction) {
+		return names[transaction];
+	}
+
+	public String getFullName(int transaction) {
+		return fullNames[transaction];
+	}
+
+	/**
+	 * Get the index of a transaction using its node id
+	 * @param idTransaction Id of the transaction node
+	 * @return The index of the transaction, or -1 if it's not in the snapshot
+	 */
+	public int indexOf(long idTransaction) {
+		return transactionIndexes.getOrDefault(idTransaction, -1);
+	}
+
+	/**
+	 * Number of objects in a transaction
+	 * @param transaction Index of the transaction
+	 * @return The number of objects
+	 */
+	public int size(int transaction) {
+		return transactionOffsets[transaction + 1] - transactionOffsets[transaction];
+	}
+
+	/**
+	 * Get the index of the objects in the transaction
+	 * @param transaction Index of the transaction
+	 * @return The indexes of the objects, sorted
+	 */
+	public int[] getObjects(int transaction) {
+		return Arrays.copyOfRange(transactionObjects, transactionOffsets[transaction], transactionOffsets[transaction + 1]);
+	}
+
+	/**
+	 * Get the node id of the objects in the transaction
+	 * @param transaction Index of the transaction
+	 * @return The ids of the objects
+	 */
+	public long[] getObjectIds(int transaction) {
+		long[] ids = new long[size(transaction)];
+		for (int i = 0; i < ids.length; i++) {
+			ids[i] = objectIds[transactionObjects[transactionOffsets[transaction] + i]];
+		}
+		return ids;
+	}
+
+	/**
+	 * Get the FullName of the objects in the transaction. Requires the object properties.
+	 * @param transaction Index of the transaction
+	 * @return The list of FullName
+	 */
+	public List<String> getObjectFullNames(int transaction) {
+		List<String> returnList = new ArrayList<>(size(transaction));
+		for (int i = transactionOffsets[transaction]; i < transactionOffsets[transaction + 1]; i++) {
+			returnList.add(objectFullNames[transactionObjects[i]]);
+		}
+		return returnList;
+	}
+
+	/**
+	 * Get the FullName of the database tables in the transaction. Requires the object properties.
+	 * @param transaction Index of the transaction
+	 * @return The list of FullName
+	 */
+	public List<String> getTableFullNames(int transaction) {
+		List<String> returnList = new ArrayList<>();
+		for (int i = transactionOffsets[transaction]; i < transactionOffsets[transaction + 1]; i++) {
+			if (objectTables.get(transactionObjects[i])) returnList.add(objectFullNames[transactionObjects[i]]);
+		}
+		return returnList;
+	}
+
+	/**
+	 * Number of objects of the transaction also present in other transactions
+	 * @param transaction Index of the transaction
+	 * @return The count of shared objects
+	 */
+	public int getNumberSharedObjects(int transaction) {
+		int count = 0;
+		for (int i = transactionOffsets[transaction]; i < transactionOffsets[transaction + 1]; i++) {
+			if (getObjectDegree(transactionObjects[i]) > 1) count++;
+		}
+		return count;
+	}
+
+	/**
+	 * Number of distinct objects in a group of transactions
+	 * @param transactions Indexes of the transactions
+	 * @return The count of distinct objects
+	 */
+	public int size(int[] transactions) {
+		BitSet objects = new BitSet(objectIds.length);
+		for (int t : transactions) {
+			for (int i = transactionOffsets[t]; i < transactionOffsets[t + 1]; i++) objects.set(transactionObjects[i]);
+		}
+		return objects.cardinality();
+	}
+
+	/**
+	 * Number of distinct objects of a group of transactions also present in transactions outside the group
+	 * @param transactions Indexes of the transactions
+	 * @return The count of shared objects
+	 */
+	public int getNumberSharedObjects(int[] transactions) {
+		BitSet group = new BitSet(getNumTransactions());
+		for (int t : transactions) group.set(t);
+
+		BitSet shared = new BitSet(objectIds.length);
+		for (int t : transactions) {
+			for (int i = transactionOffsets[t]; i < transactionOffsets[t + 1]; i++) {
+				int object = transactionObjects[i];
+				if (shared.get(object)) continue;
+
+				for (int j = objectOffsets[object]; j < objectOffsets[object + 1]; j++) {
+					if (!group.get(objectTransactions[j])) {
+						shared.set(object);
+						break;
+					}
+				}
+			}
+		}
+		return shared.cardinality();
+	}
+
+	/**
+	 * Hash of the content of a transaction, computed on the sorted FullName of its objects. Unlike the fingerprint, it
+	 * doesn't depend on the ids of the nodes, so two versions of a transaction with the same objects have the same
+	 * hash. Requires the object properties.
+	 * @param transaction Index of the transaction
+	 * @return The hash (FNV-1a, 64 bits)
+	 */
+	public long getObjectsHash(int transaction) {
+		List<String> names = getObjectFullNames(transaction);
+		names.sort(Comparator.nullsFirst(Comparator.naturalOrder()));
+
+		long hash = 0xcbf29ce484222325L;
+		for (String name : names) {
+			if (name != null) {
+				for (int i = 0; i < name.length(); i++) hash = (hash ^ name.charAt(i)) * 0x100000001b3L;
+			}
+			// The separators are out of the range of the characters, a missing name has its own
+			hash = (hash ^ (name == null ? 0x10001 : 0x10000)) * 0x100000001b3L;
+		}
+		return hash;
+	}
+
+	// Objects
+
+	/**
+	 * Fingerprint of the transactions and of their objects. Two snapshots with the same transactions, containing the
+	 * same objects, have the same fingerprint, whatever the order of the rows returned by the database.
+	 * @return The fingerprint
+	 */
+	public long fingerprint() {
+		long fingerprint = mix(transactionIds.length);
+		for (int t = 0; t < transactionIds.length; t++) {
+			long transactionHash = mix(transactionIds[t]);
+			for (int i = transactionOffsets[t]; i < transactionOffsets[t + 1]; i++) {
+				transactionHash += mix(objectIds[transactionObjects[i]] ^ 0x9e3779b97f4a7c15L);
+			}
+			fingerprint += mix(transactionHash);
+		}
+		return fingerprint;
+	}
+
+	/**
+	 * Mix the bits of a long (SplitMix64 finalizer)
+	 * @param z Value to mix
+	 * @return The mixed value
+	 */
+	private static long mix(long z) {
+		z = (z ^ (z >>> 30)) * 0xbf58476d1ce4e5b9L;
+		z = (z ^ (z >>> 27)) * 0x94d049bb133111ebL;
+		return z ^ (z >>> 31);
+	}
+
+	public int getNumObjects() {
+		return objectIds.length;
+	}
+
+	public long getObjectId(int object) {
+		return objectIds[object];
+	}
+
+	/**
+	 * Number of transactions containing an object
+	 * @param object Index of the object
+	 * @return The number of transactions
+	 */
+	public int getObjectDegree(int object) {
+		return objectOffsets[object + 1] - objectOffsets[object];
+	}
+
+	// Adjacency arrays, shared with the caller and must not be modified
+
+	public int[] getTransactionOffsets() {
+		return transactionOffsets;
+	}
+
+	public int[] getTransactionObjects() {
+		return transactionObjects;
+	}
+
+	public int[] getObjectOffsets() {
+		return objectOffsets;
+	}
+
+	public int[] getObjectTransactions() {
+		return objectTransactions;
+	}
+
+	/**
+	 * Constructor
+	 * @param application Name of the application
+	 * @param transactionIds Node ids of the transactions
+	 * @param names Names of the transactions
+	 * @param fullNames FullNames of the transactions
+	 * @param transactionOffsets Offsets of each transaction in the objects array (size n + 1)
+	 * @param transactionObjects Indexes of the objects, grouped by transaction, without duplicates
+	 * @param objectIds Node ids of the objects
+	 */
+	public TransactionSnapshot(String application, long[] transactionIds, String[] names, String[] fullNames,
+							   int[] transactionOffsets, int[] transactionObjects, long[] objectIds) {
+		this.application = application;
+		this.transactionIds = transactionIds;
+		this.names = names;
+		this.fullNames = fullNames;
+		this.transactionOffsets = transactionOffsets;
+		this.transactionObjects = transactionObjects;
+		this.objectIds = objectIds;
+
+		// Sort the objects of each transaction
+		for (int t = 0; t < transactionIds.length; t++) {
+			Arrays.sort(transactionObjects, transactionOffsets[t], transactionOffsets[t + 1]);
+		}
+
+		this.transactionIndexes = new HashMap<>();
+		for (int t = 0; t < transactionIds.length; t++) transactionIndexes.put(transactionIds[t], t);
+
+		this.buildObjectIndex();
+	}
+}
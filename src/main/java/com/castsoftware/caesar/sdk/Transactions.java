@@ -13,9 +13,27 @@ import java.util.ArrayList;
 import java.util.List;
 import java.util.Map;
 import java.util.Optional;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+import java.util.stream.Stream;
 
 public class Transactions {
 
+	private static final String TRANSACTIONS_QUERY = Neo4jAL.registerQuery("transactions.all",
+			"MATCH (tran:Transaction:`%s`) RETURN DISTINCT tran as transaction");
+	private static final String TRANSACTIONS_MIN_SIZE_QUERY = Neo4jAL.registerQuery("transactions.minSize",
+			"MATCH (tran:Transaction:`%s`)-[]->(o:Object) "
+					+ "WITH tran, COLLECT(DISTINCT o) as objects "
+					+ "WHERE SIZE(objects) > $minSize "
+					+ "RETURN DISTINCT tran as transaction ");
+	private static final String COUNT_MIN_SIZE_QUERY = Neo4jAL.registerQuery("transactions.countMinSize",
+			"MATCH (tran:Transaction:`%s`)-[]->(o:Object) "
+					+ "WITH tran, COLLECT(DISTINCT o) as objects "
+					+ "WHERE SIZE(objects) > $minSize "
+					+ "RETURN COUNT(DISTINCT tran) as count ");
+	private static final String COUNT_QUERY = Neo4jAL.registerQuery("transactions.count",
+			"MATCH (tran:Transaction:`%s`) RETURN count(DISTINCT tran) as count");
+
 	/**
 	 * Get the list of transaction in the application
 	 * @param neo4jAL Neo4j Access list
@@ -24,7 +42,7 @@ public class Transactions {
 	 */
 	public static List<Node> getTransactions(Neo4jAL neo4jAL, String application) throws Neo4jBadRequestException {
 		List<Node> returnList = new ArrayList<>();
-		String request = String.format("MATCH (tran:Transaction:`%s`) RETURN DISTINCT tran as transaction", application);
+		String request = neo4jAL.getQuery(TRANSACTIONS_QUERY, application);
 
 		try {
 			Node n;
@@ -49,13 +67,7 @@ public class Transactions {
 	 */
 	public static List<Node> getTransactions(Neo4jAL neo4jAL, String application, int minSize) throws Neo4jBadRequestException {
 		List<Node> returnList = new ArrayList<>();
-		String request =
-			String.format(
-				"MATCH (tran:Transaction:`%s`)-[]->(o:Object) "
-					+ "WITH tran, COLLECT(DISTINCT o) as objects "
-					+ "WHERE SIZE(objects) > $minSize "
-					+ "RETURN DISTINCT tran as transaction ",
-				application);
+		String request = neo4jAL.getQuery(TRANSACTIONS_MIN_SIZE_QUERY, application);
 		Map<String, Object> params = Map.of("minSize", minSize);
 
 		try {
@@ -81,11 +93,7 @@ public class Transactions {
 	 * @throws Neo4jBadRequestException
 	 */
 	public static Long getTransactionsCount(Neo4jAL neo4jAL, String application, int minSize) throws Neo4jBadRequestException {
-		String request = String.format("MATCH (tran:Transaction:`%s`)-[]->(o:Object) "
-				+ "WITH tran, COLLECT(DISTINCT o) as objects "
-				+ "WHERE SIZE(objects) > $minSize "
-				+ "RETURN COUNT(DISTINCT tran) as count ",
-				application);
+		String request = neo4jAL.getQuery(COUNT_MIN_SIZE_QUERY, application);
 		Map<String, Object> params = Map.of("minSize", minSize);
 
 		try {
@@ -105,8 +113,7 @@ public class Transactions {
 	 * @throws Neo4jBadRequestException
 	 */
 	public static Long getTransactionsCount(Neo4jAL neo4jAL, String application) throws Neo4jBadRequestException {
-		String request = String.format("MATCH (tran:Transaction:`%s`) " +
-				"RETURN count(DISTINCT tran) as count", application);
+		String request = neo4jAL.getQuery(COUNT_QUERY, application);
 
 		try {
 			Result results = neo4jAL.executeQuery(request);
@@ -197,7 +204,7 @@ public class Transactions {
 
 		try {
 			Node n;
-			Result results = neo4jAL.executeQuery(request);
+			Result results = neo4jAL.executeQuery(request, params);
 			while(results.hasNext()) {
 				n = (Node) results.next().get("object");
 				returnList.add(n);
@@ -297,6 +304,154 @@ public class Transactions {
 		}
 	}
 
+	/**
+	 * Get the index of a transaction in the snapshot
+	 * @param snapshot Snapshot of the application
+	 * @param idTransaction Id of the transaction
+	 * @return The index of the transaction
+	 * @throws Neo4jBadRequestException If the transaction isn't part of the snapshot
+	 */
+	private static int getSnapshotIndex(TransactionSnapshot snapshot, Long idTransaction) throws Neo4jBadRequestException {
+		int index = snapshot.indexOf(idTransaction);
+		if (index < 0) {
+			throw new Neo4jBadRequestException(
+					String.format("The transaction with id [%d] isn't part of the application '%s'", idTransaction, snapshot.getApplication()),
+					"TRANxSNAP1");
+		}
+		return index;
+	}
+
+	/**
+	 * Get the list of object in the transaction, using the snapshot of the application
+	 * @param neo4jAL Neo4j Access Layer
+	 * @param snapshot Snapshot of the application
+	 * @param idTransaction Id of the transaction
+	 * @return The list of objects
+	 */
+	public static List<Node> getObjects(Neo4jAL neo4jAL, TransactionSnapshot snapshot, Long idTransaction) throws Neo4jBadRequestException {
+		List<Node> returnList = new ArrayList<>();
+		try {
+			Node n;
+			for (long idObject : snapshot.getObjectIds(getSnapshotIndex(snapshot, idTransaction))) {
+				n = neo4jAL.getNodeById(idObject);
+				if (n != null) returnList.add(n);
+			}
+			return returnList;
+		} catch (Neo4jQueryException e) {
+			throw new Neo4jBadRequestException("Failed to get the list of objects in the transaction", e, "TRANxGET1");
+		}
+	}
+
+	/**
+	 * Get the number of object in the transaction, using the snapshot of the application
+	 * @param snapshot Snapshot of the application
+	 * @param idTransaction Id of the transaction
+	 * @return The number of objects in the transaction
+	 */
+	public static long getTransactionSize(TransactionSnapshot snapshot, Long idTransaction) throws Neo4jBadRequestException {
+		return snapshot.size(getSnapshotIndex(snapshot, idTransaction));
+	}
+
+	/**
+	 * Get the number of objects shared with other transactions of the application, using the snapshot
+	 * @param snapshot Snapshot of the application
+	 * @param idTransaction Id of the transaction
+	 * @return The count of shared objects
+	 */
+	public static long getNumberSharedObjects(TransactionSnapshot snapshot, Long idTransaction) throws Neo4jBadRequestException {
+		return snapshot.getNumberSharedObjects(getSnapshotIndex(snapshot, idTransaction));
+	}
+
+	/**
+	 * Get the number of distinct objects in a cluster of transactions, using the snapshot of the application
+	 * @param snapshot Snapshot of the application
+	 * @param idTransactions Id of the transactions in the cluster
+	 * @return The number of objects in the cluster
+	 */
+	public static Long getTransactionsSize(TransactionSnapshot snapshot, List<Long> idTransactions) throws Neo4jBadRequestException {
+		int[] indexes = new int[idTransactions.size()];
+		for (int i = 0; i < indexes.length; i++) indexes[i] = getSnapshotIndex(snapshot, idTransactions.get(i));
+		return (long) snapshot.size(indexes);
+	}
+
+	/**
+	 * Get the number of objects of a cluster shared with transactions outside the cluster, using the snapshot of the application
+	 * @param snapshot Snapshot of the application
+	 * @param transactionsId Id of the transactions in the cluster
+	 * @return The count of shared objects
+	 */
+	public static long getNumberSharedObjects(TransactionSnapshot snapshot, List<Long> transactionsId) throws Neo4jBadRequestException {
+		int[] indexes = new int[transactionsId.size()];
+		for (int i = 0; i < indexes.length; i++) indexes[i] = getSnapshotIndex(snapshot, transactionsId.get(i));
+		return snapshot.getNumberSharedObjects(indexes);
+	}
+
+	/**
+	 * Get the transactions of an application with their size and uniqueness, computed in one pass
+	 * @param neo4jAL Neo4j Access Layer
+	 * @param application Name of the application
+	 * @param minSize Minimum number of object in the transaction to be taken in account
+	 * @return The list of transactions with their metrics
+	 * @throws Neo4jBadRequestException If the transactions failed to load
+	 */
+	public static List<Transaction> getTransactionsWithMetrics(Neo4jAL neo4jAL, String application, int minSize) throws Neo4jBadRequestException {
+		return getTransactionsWithMetrics(TransactionSnapshot.load(neo4jAL, application), minSize);
+	}
+
+	/**
+	 * Get the transactions of the snapshot with their size and uniqueness. The number of transactions containing
+	 * each object is counted once, then each transaction is visited once.
+	 * @param snapshot Snapshot of the application
+	 * @param minSize Minimum number of object in the transaction to be taken in account
+	 * @return The list of transactions with their metrics
+	 */
+	public static List<Transaction> getTransactionsWithMetrics(TransactionSnapshot snapshot, int minSize) {
+		return streamTransactionsWithMetrics(snapshot, minSize).collect(Collectors.toList());
+	}
+
+	/**
+	 * Stream the transactions of an application with their size and uniqueness
+	 * @param neo4jAL Neo4j Access Layer
+	 * @param application Name of the application
+	 * @param minSize Minimum number of object in the transaction to be taken in account
+	 * @return The stream of transactions, built lazily
+	 * @throws Neo4jBadRequestException If the snapshot of the application cannot be loaded
+	 */
+	public static Stream<Transaction> streamTransactionsWithMetrics(Neo4jAL neo4jAL, String application, int minSize) throws Neo4jBadRequestException {
+		return streamTransactionsWithMetrics(TransactionSnapshot.load(neo4jAL, application), minSize);
+	}
+
+	/**
+	 * Stream the transactions of the snapshot with their size and uniqueness. The number of transactions containing
+	 * each object is counted once, then each Transaction is built when the stream reaches it.
+	 * @param snapshot Snapshot of the application
+	 * @param minSize Minimum number of object in the transaction to be taken in account
+	 * @return The stream of transactions, built lazily
+	 */
+	public static Stream<Transaction> streamTransactionsWithMetrics(TransactionSnapshot snapshot, int minSize) {
+		// Number of transactions per object
+		int[] degrees = new int[snapshot.getNumObjects()];
+		for (int object : snapshot.getTransactionObjects()) degrees[object]++;
+
+		int[] offsets = snapshot.getTransactionOffsets();
+		int[] objects = snapshot.getTransactionObjects();
+
+		return IntStream.range(0, snapshot.getNumTransactions())
+				.filter(t -> snapshot.size(t) > minSize)
+				.mapToObj(t -> {
+					int size = snapshot.size(t);
+					int shared = 0;
+					for (int i = offsets[t]; i < offsets[t + 1]; i++) {
+						if (degrees[objects[i]] > 1) shared++;
+					}
+
+					Transaction transaction = new Transaction(snapshot.getTransactionId(t), snapshot.getName(t), snapshot.getFullName(t));
+					transaction.setSize((long) size);
+					transaction.setUniqueness(1 - (double) shared / size);
+					return transaction;
+				});
+	}
+
 	/**
 	 * Check if the node is an Transaction
 	 * @param n Node to check
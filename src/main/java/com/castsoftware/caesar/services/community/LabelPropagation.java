@@ -0,0 +1,232 @@
+package com.castsoftware.caesar.services.community;
+
+import com.castsoftware.caesar.services.similarity.InvertedIndexSimilarity;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Label propagation over a weighted directed graph loaded in primitive arrays. At each iteration,
+ * every node takes the label with the highest total weight among its incoming neighbors. The
+ * iterations are synchronous: the new labels are computed from the labels of the previous
+ * iteration, then swapped.
+ *
+ * <p>Since a node only reads the labels of the previous iteration, the nodes can be processed in
+ * parallel. Workers of a {@link ForkJoinPool} take blocks of nodes and keep their own scratch
+ * arrays. Ties are broken by taking the smallest label, so the result does not depend on the
+ * order of the neighbors nor on the number of workers.
+ */
+public class LabelPropagation implements AutoCloseable {
+
+  private static final int BLOCK_SIZE = 1024;
+
+  private final int numNodes;
+  private final int concurrency;
+  private final ForkJoinPool pool;
+
+  // Incoming adjacency arrays
+  private final int[] offsets;
+  private final int[] neighbors;
+  private final double[] weights;
+
+  // Double buffer of labels
+  private long[] labels;
+  private long[] nextLabels;
+
+  /**
+   * Build the label propagation on the similarity links. Each node receives the labels of the
+   * nodes linking to it.
+   *
+   * @param numNodes Number of nodes
+   * @param links Directed links between the nodes
+   * @param concurrency Number of workers used by the iterations
+   * @return The label propagation, with a unique label per node
+   */
+  public static LabelPropagation fromLinks(
+      int numNodes, InvertedIndexSimilarity.SimilarityLinks links, int concurrency) {
+    int[] offsets = new int[numNodes + 1];
+    int[] neighbors = new int[links.size()];
+    double[] weights = new double[links.size()];
+
+    for (int i = 0; i < links.size(); i++) offsets[links.getDestination(i) + 1]++;
+    for (int n = 0; n < numNodes; n++) offsets[n + 1] += offsets[n];
+
+    int[] cursor = Arrays.copyOf(offsets, numNodes);
+    for (int i = 0; i < links.size(); i++) {
+      int position = cursor[links.getDestination(i)]++;
+      neighbors[position] = links.getSource(i);
+      weights[position] = links.getWeight(i);
+    }
+
+    return new LabelPropagation(numNodes, offsets, neighbors, weights, concurrency);
+  }
+
+  /**
+   * Run one iteration of the propagation
+   *
+   * @return The number of nodes whose label changed
+   */
+  public int iterate() {
+    int modifications;
+    if (pool == null) {
+      modifications = updateRange(0, numNodes, new long[numNodes], new int[numNodes]);
+    } else {
+      modifications = iterateParallel();
+    }
+
+    // Swap the buffers
+    long[] tmp = labels;
+    labels = nextLabels;
+    nextLabels = tmp;
+
+    return modifications;
+  }
+
+  /**
+   * Run one iteration with the workers of the pool. Each worker takes the next block of nodes until
+   * all the nodes are processed.
+   *
+   * @return The number of nodes whose label changed
+   */
+  private int iterateParallel() {
+    AtomicInteger nextBlock = new AtomicInteger(0);
+    List<ForkJoinTask<Integer>> tasks = new ArrayList<>(concurrency);
+
+    for (int w = 0; w < concurrency; w++) {
+      tasks.add(
+          pool.submit(
+              () -> {
+                long[] scores = new long[numNodes];
+                int[] touched = new int[numNodes];
+                int modifications = 0;
+
+                int start;
+                while ((start = nextBlock.getAndAdd(BLOCK_SIZE)) < numNodes) {
+                  int end = Math.min(start + BLOCK_SIZE, numNodes);
+                  modifications += updateRange(start, end, scores, touched);
+                }
+                return modifications;
+              }));
+    }
+
+    int modifications = 0;
+    try {
+      for (ForkJoinTask<Integer> task : tasks) modifications += task.get();
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      throw new IllegalStateException("The label propagation was interrupted.", e);
+    } catch (ExecutionException e) {
+      throw new IllegalStateException("A worker of the label propagation failed.", e.getCause());
+    }
+    return modifications;
+  }
+
+  /**
+   * Compute the next label of a range of nodes
+   *
+   * @param start First node (inclusive)
+   * @param end Last node (exclusive)
+   * @param scores Scratch array of scores, all set to 0
+   * @param touched Scratch array of labels met
+   * @return The number of nodes whose label changed
+   */
+  private int updateRange(int start, int end, long[] scores, int[] touched) {
+    int modifications = 0;
+    for (int node = start; node < end; node++) {
+      long newLabel = bestLabel(node, scores, touched);
+      if (newLabel != labels[node]) modifications++;
+      nextLabels[node] = newLabel;
+    }
+    return modifications;
+  }
+
+  /**
+   * Get the label with the highest weight around a node
+   *
+   * @param node Node to process
+   * @param scores Scratch array of scores, all set to 0
+   * @param touched Scratch array of labels met
+   * @return The best label, the smallest one in case of tie, or the current label of the node if no
+   *     neighbor has a positive weight
+   */
+  private long bestLabel(int node, long[] scores, int[] touched) {
+    int numTouched = 0;
+
+    for (int i = offsets[node]; i < offsets[node + 1]; i++) {
+      int label = (int) labels[neighbors[i]];
+      if (scores[label] == 0) touched[numTouched++] = label;
+      // Weights are truncated, as done by the previous Cypher implementation
+      scores[label] += (long) weights[i];
+    }
+
+    long maxLabel = labels[node];
+    long maxValue = 0L;
+    for (int k = 0; k < numTouched; k++) {
+      int label = touched[k];
+      long score = scores[label];
+      if (maxValue < score || (maxValue == score && score > 0 && label < maxLabel)) {
+        maxValue = score;
+        maxLabel = label;
+      }
+      scores[label] = 0; // Reset for the next node
+    }
+
+    return maxLabel;
+  }
+
+  /**
+   * Run the propagation until no label changes or the maximum number of iterations is reached
+   *
+   * @param maxIterations Maximum number of iterations
+   * @return The number of iterations performed
+   */
+  public int run(int maxIterations) {
+    for (int it = 0; it < maxIterations; it++) {
+      if (iterate() == 0) return it + 1;
+    }
+    return maxIterations;
+  }
+
+  /**
+   * Labels of the nodes. A label is the index of the node it originates from.
+   *
+   * @return The labels
+   */
+  public long[] getLabels() {
+    return labels;
+  }
+
+  /** Shutdown the workers of the propagation */
+  @Override
+  public void close() {
+    if (pool != null) pool.shutdown();
+  }
+
+  /**
+   * Constructor. Each node starts with its own index as label.
+   *
+   * @param numNodes Number of nodes
+   * @param offsets Offsets of the incoming neighbors of each node (size n + 1)
+   * @param neighbors Incoming neighbors
+   * @param weights Weight of the incoming links
+   * @param concurrency Number of workers. With 1 or less, the iterations run in the calling thread
+   */
+  public LabelPropagation(
+      int numNodes, int[] offsets, int[] neighbors, double[] weights, int concurrency) {
+    this.numNodes = numNodes;
+    this.concurrency = Math.max(1, concurrency);
+    this.pool = this.concurrency > 1 ? new ForkJoinPool(this.concurrency) : null;
+    this.offsets = offsets;
+    this.neighbors = neighbors;
+    this.weights = weights;
+
+    this.labels = new long[numNodes];
+    this.nextLabels = new long[numNodes];
+    for (int n = 0; n < numNodes; n++) labels[n] = n;
+  }
+}
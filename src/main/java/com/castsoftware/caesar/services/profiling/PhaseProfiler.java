@@ -0,0 +1,150 @@
+package com.castsoftware.caesar.services.profiling;
+
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.function.LongSupplier;
+
+/**
+ * Measure the phases of a procedure : wall time, CPU time, bytes allocated and number of queries.
+ *
+ * <p>CPU time and allocations are read from the {@link ThreadMXBean} for the thread running the
+ * phase, so the work done by other threads (for example the workers of the label propagation) is
+ * only visible in the wall time. They are reported as -1 if the JVM doesn't support them.
+ */
+public class PhaseProfiler {
+
+  private static final String TOTAL = "total";
+
+  private final ThreadMXBean threads;
+  private final LongSupplier queryCounter;
+  private final List<Phase> phases = new ArrayList<>();
+  private final Phase total;
+
+  /**
+   * Start a new phase
+   *
+   * @param name Name of the phase
+   * @return The phase, to stop once done
+   */
+  public Phase start(String name) {
+    Phase phase = new Phase(name);
+    phases.add(phase);
+    return phase;
+  }
+
+  /**
+   * Stop the profiling, and get the phases followed by their total
+   *
+   * @return The list of phases
+   */
+  public List<Phase> getReport() {
+    if (total.isRunning()) total.stop();
+
+    List<Phase> report = new ArrayList<>(phases);
+    report.add(total);
+    return Collections.unmodifiableList(report);
+  }
+
+  private long cpuTime() {
+    return threads.isCurrentThreadCpuTimeSupported() && threads.isThreadCpuTimeEnabled()
+        ? threads.getCurrentThreadCpuTime()
+        : -1;
+  }
+
+  private long allocatedBytes() {
+    if (!(threads instanceof com.sun.management.ThreadMXBean)) return -1;
+
+    com.sun.management.ThreadMXBean sunThreads = (com.sun.management.ThreadMXBean) threads;
+    if (!sunThreads.isThreadAllocatedMemorySupported() || !sunThreads.isThreadAllocatedMemoryEnabled()) {
+      return -1;
+    }
+    return sunThreads.getThreadAllocatedBytes(Thread.currentThread().getId());
+  }
+
+  /**
+   * Constructor. The total starts with the profiler.
+   *
+   * @param queryCounter Number of queries executed so far
+   */
+  public PhaseProfiler(LongSupplier queryCounter) {
+    this.threads = ManagementFactory.getThreadMXBean();
+    this.queryCounter = queryCounter;
+    this.total = new Phase(TOTAL);
+  }
+
+  /** Measures of one phase */
+  public class Phase {
+    private final String name;
+
+    private final long startWallTime;
+    private final long startCpuTime;
+    private final long startAllocatedBytes;
+    private final long startQueries;
+
+    private long wallTime = -1;
+    private long cpuTime = -1;
+    private long allocatedBytes = -1;
+    private long queries = -1;
+
+    /**
+     * Stop the phase. Only the first call is taken into account.
+     *
+     * @return The phase
+     */
+    public Phase stop() {
+      if (!isRunning()) return this;
+
+      long endCpuTime = cpuTime();
+      long endAllocatedBytes = allocatedBytes();
+
+      wallTime = System.nanoTime() - startWallTime;
+      cpuTime = startCpuTime < 0 || endCpuTime < 0 ? -1 : endCpuTime - startCpuTime;
+      allocatedBytes =
+          startAllocatedBytes < 0 || endAllocatedBytes < 0 ? -1 : endAllocatedBytes - startAllocatedBytes;
+      queries = queryCounter.getAsLong() - startQueries;
+      return this;
+    }
+
+    public boolean isRunning() {
+      return wallTime < 0;
+    }
+
+    public String getName() {
+      return name;
+    }
+
+    public long getWallTimeMs() {
+      return isRunning() ? (System.nanoTime() - startWallTime) / 1_000_000 : wallTime / 1_000_000;
+    }
+
+    public long getCpuTimeMs() {
+      return cpuTime < 0 ? -1 : cpuTime / 1_000_000;
+    }
+
+    public long getAllocatedBytes() {
+      return allocatedBytes;
+    }
+
+    public long getQueries() {
+      return queries;
+    }
+
+    @Override
+    public String toString() {
+      return String.format(
+          "%s : %d ms wall, %d ms CPU, %d bytes allocated, %d queries",
+          name, getWallTimeMs(), getCpuTimeMs(), allocatedBytes, queries);
+    }
+
+    private Phase(String name) {
+      this.name = name;
+      this.startQueries = queryCounter.getAsLong();
+      this.startAllocatedBytes = allocatedBytes();
+      this.startCpuTime = cpuTime();
+      this.startWallTime = System.nanoTime();
+    }
+  }
+}
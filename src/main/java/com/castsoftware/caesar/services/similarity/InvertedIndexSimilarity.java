@@ -0,0 +1,154 @@
+package com.castsoftware.caesar.services.similarity;
+
+import com.castsoftware.caesar.sdk.TransactionSnapshot;
+
+import java.util.Arrays;
+
+import static java.lang.Math.exp;
+
+/**
+ * Compute the similarity between the transactions of an application using an object to transaction
+ * inverted index. Only the pairs of transactions sharing at least one object are visited, and the
+ * number of shared objects is accumulated with primitive counters.
+ *
+ * <p>Transactions and objects are identified by their index in the {@link TransactionSnapshot}.
+ */
+public class InvertedIndexSimilarity {
+
+  private final int numTransactions;
+
+  private final int[] transactionOffsets;
+  private final int[] transactionObjects;
+
+  private final int[] objectOffsets;
+  private final int[] objectTransactions;
+
+  /**
+   * Weight of the link between a source and a destination transaction
+   *
+   * @param sourceSize Number of objects in the source transaction
+   * @param shared Number of objects shared by the two transactions
+   * @return The weight of the link, infinite if the source is fully contained in the destination
+   */
+  public static double weight(int sourceSize, int shared) {
+    return exp((double) shared / (double) (sourceSize - shared));
+  }
+
+  /**
+   * Compute the directed similarity links between all the transactions sharing objects. For each
+   * ordered pair (source, destination) the weight is <code>exp(|S∩D| / |S\D|)</code>. Pairs where
+   * the source is fully contained in the destination produce an infinite weight and are skipped.
+   *
+   * @return The links found
+   */
+  public SimilarityLinks computeLinks() {
+    SimilarityLinks links = new SimilarityLinks(numTransactions * 4);
+
+    int[] counters = new int[numTransactions]; // Shared objects with the current transaction
+    int[] touched = new int[numTransactions]; // Transactions met for the current transaction
+    int numTouched;
+
+    for (int source = 0; source < numTransactions; source++) {
+      numTouched = 0;
+
+      // Count the objects shared with every other transaction
+      for (int i = transactionOffsets[source]; i < transactionOffsets[source + 1]; i++) {
+        int object = transactionObjects[i];
+        for (int j = objectOffsets[object]; j < objectOffsets[object + 1]; j++) {
+          int dest = objectTransactions[j];
+          if (dest == source) continue;
+          if (counters[dest] == 0) touched[numTouched++] = dest;
+          counters[dest]++;
+        }
+      }
+
+      // Sort to keep a stable order in the links created
+      Arrays.sort(touched, 0, numTouched);
+
+      int sourceSize = size(source);
+      for (int k = 0; k < numTouched; k++) {
+        int dest = touched[k];
+        double percentage = weight(sourceSize, counters[dest]);
+        counters[dest] = 0; // Reset for the next source
+
+        // The weight is at least 1, only a source contained in the destination is skipped
+        if (Double.isInfinite(percentage)) continue;
+        links.add(source, dest, percentage);
+      }
+    }
+
+    return links;
+  }
+
+  /**
+   * Number of objects in a transaction
+   *
+   * @param transaction Index of the transaction
+   * @return The number of objects
+   */
+  public int size(int transaction) {
+    return transactionOffsets[transaction + 1] - transactionOffsets[transaction];
+  }
+
+  public int getNumTransactions() {
+    return numTransactions;
+  }
+
+  /**
+   * Constructor
+   *
+   * @param snapshot Snapshot of the transactions to link
+   */
+  public InvertedIndexSimilarity(TransactionSnapshot snapshot) {
+    this.numTransactions = snapshot.getNumTransactions();
+    this.transactionOffsets = snapshot.getTransactionOffsets();
+    this.transactionObjects = snapshot.getTransactionObjects();
+    this.objectOffsets = snapshot.getObjectOffsets();
+    this.objectTransactions = snapshot.getObjectTransactions();
+  }
+
+  /** Directed similarity links stored in primitive arrays */
+  public static class SimilarityLinks {
+    private int[] sources;
+    private int[] destinations;
+    private double[] weights;
+    private int size;
+
+    public int size() {
+      return size;
+    }
+
+    public int getSource(int i) {
+      return sources[i];
+    }
+
+    public int getDestination(int i) {
+      return destinations[i];
+    }
+
+    public double getWeight(int i) {
+      return weights[i];
+    }
+
+    private void add(int source, int destination, double weight) {
+      if (size == sources.length) {
+        int capacity = Math.max(16, size * 2);
+        sources = Arrays.copyOf(sources, capacity);
+        destinations = Arrays.copyOf(destinations, capacity);
+        weights = Arrays.copyOf(weights, capacity);
+      }
+
+      sources[size] = source;
+      destinations[size] = destination;
+      weights[size] = weight;
+      size++;
+    }
+
+    private SimilarityLinks(int capacity) {
+      this.sources = new int[capacity];
+      this.destinations = new int[capacity];
+      this.weights = new double[capacity];
+      this.size = 0;
+    }
+  }
+}
@@ -0,0 +1,130 @@
+package com.castsoftware.caesar.services.similarity;
+
+import java.util.*;
+
+/**
+ * MinHash signatures with a locality-sensitive hashing (LSH) banding index. The signature of a
+ * set of strings estimates its Jaccard similarity with other sets. Signatures are cut in bands,
+ * and two sets become candidates if at least one of their bands is identical.
+ *
+ * <p>With <code>b</code> bands of <code>r</code> rows, two sets with a Jaccard similarity <code>s
+ * </code> become candidates with a probability of <code>1 - (1 - s^r)^b</code>. More bands
+ * increase the recall, more rows per band increase the precision.
+ */
+public class MinHashIndex {
+
+  private static final long SEED = 0x5DEECE66DL;
+
+  private final int signatureSize;
+  private final int bands;
+  private final int rows;
+  private final long[] hashSeeds;
+
+  private final Map<Long, List<Integer>> buckets;
+  private int maxId = -1;
+
+  /**
+   * Mix the bits of a long (SplitMix64 finalizer)
+   *
+   * @param z Value to mix
+   * @return The mixed value
+   */
+  private static long mix(long z) {
+    z = (z ^ (z >>> 30)) * 0xbf58476d1ce4e5b9L;
+    z = (z ^ (z >>> 27)) * 0x94d049bb133111ebL;
+    return z ^ (z >>> 31);
+  }
+
+  /**
+   * Compute the MinHash signature of a set of items
+   *
+   * @param items Items of the set
+   * @return The signature
+   */
+  public int[] signature(Collection<String> items) {
+    int[] signature = new int[signatureSize];
+    Arrays.fill(signature, Integer.MAX_VALUE);
+
+    for (String item : items) {
+      long base = mix(item.hashCode());
+      for (int i = 0; i < signatureSize; i++) {
+        int h = (int) (mix(base ^ hashSeeds[i]) >>> 33); // Positive int
+        if (h < signature[i]) signature[i] = h;
+      }
+    }
+
+    return signature;
+  }
+
+  /**
+   * Get the key of a band in the signature
+   *
+   * @param signature Signature
+   * @param band Index of the band
+   * @return The key of the bucket
+   */
+  private long bandKey(int[] signature, int band) {
+    long h = band;
+    for (int r = band * rows; r < (band + 1) * rows; r++) {
+      h = h * 31 + signature[r];
+    }
+    return mix(h);
+  }
+
+  /**
+   * Insert a signature in the index
+   *
+   * @param id Id of the element (must be positive)
+   * @param signature Signature of the element
+   */
+  public void insert(int id, int[] signature) {
+    for (int b = 0; b < bands; b++) {
+      buckets.computeIfAbsent(bandKey(signature, b), k -> new ArrayList<>()).add(id);
+    }
+    maxId = Math.max(maxId, id);
+  }
+
+  /**
+   * Find the candidates sharing at least one band with the signature
+   *
+   * @param signature Signature to search
+   * @return The ids of the candidates, sorted
+   */
+  public int[] candidates(int[] signature) {
+    BitSet found = new BitSet(maxId + 1);
+    for (int b = 0; b < bands; b++) {
+      List<Integer> bucket = buckets.get(bandKey(signature, b));
+      if (bucket == null) continue;
+      for (Integer id : bucket) found.set(id);
+    }
+
+    return found.stream().toArray();
+  }
+
+  /**
+   * Constructor
+   *
+   * @param signatureSize Number of hash functions in the signature
+   * @param bands Number of bands. Must divide the signature size
+   */
+  public MinHashIndex(int signatureSize, int bands) {
+    if (signatureSize <= 0 || bands <= 0 || signatureSize % bands != 0) {
+      throw new IllegalArgumentException(
+          String.format(
+              "The signature size (%d) must be a multiple of the number of bands (%d).",
+              signatureSize, bands));
+    }
+
+    this.signatureSize = signatureSize;
+    this.bands = bands;
+    this.rows = signatureSize / bands;
+    this.buckets = new HashMap<>();
+
+    this.hashSeeds = new long[signatureSize];
+    long seed = SEED;
+    for (int i = 0; i < signatureSize; i++) {
+      seed = mix(seed + 0x9e3779b97f4a7c15L);
+      this.hashSeeds[i] = seed;
+    }
+  }
+}
@@ -0,0 +1,190 @@
+package com.castsoftware.caesar.services.similarity;
+
+import com.castsoftware.caesar.entities.transactions.TransactionSimilarity;
+import com.castsoftware.caesar.exceptions.file.FileIOException;
+
+import java.io.*;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * Write the results of the similarity between two applications in CSV files : one for the
+ * transactions matched by name, and one for the transactions matched by their objects.
+ *
+ * <p>The files stay open for the whole run, behind a large buffer, and the results are appended to
+ * existing files. The header is only written in new files, and an existing file with another
+ * header is refused, so its rows never mix with rows of a different layout. The writer is not thread-safe, results
+ * must be written by a single thread.
+ */
+public class SimilarityResultWriter implements Closeable {
+
+  private static final String ERROR_CODE = "SIMWx";
+  private static final String SIMILAR_FILE = "SimilarTransaction_.csv";
+  private static final String DIFFERENT_FILE = "DifferentTransaction_.csv";
+  private static final String GZIP_EXTENSION = ".gz";
+  private static final String HEADER =
+      "Type, SourceId, SourceName, SourceSize, TargetId, TargetName, TargetSize, SimilarityObject, SimilarityDatabase, Rank";
+  private static final int BUFFER_SIZE = 1 << 16;
+
+  private final Writer similar;
+  private final Writer different;
+
+  /**
+   * Escape a value for a CSV file. Values containing a separator, a quote or a line break are
+   * quoted, and their quotes doubled.
+   *
+   * @param value Value to escape
+   * @return The escaped value
+   */
+  public static String escape(String value) {
+    if (value == null) return "";
+
+    boolean quote = false;
+    for (int i = 0; i < value.length() && !quote; i++) {
+      char c = value.charAt(i);
+      quote = c == ',' || c == '"' || c == '\n' || c == '\r';
+    }
+    if (!quote) return value;
+
+    return '"' + value.replace("\"", "\"\"") + '"';
+  }
+
+  /**
+   * Get the path of a result file
+   *
+   * @param folder Folder of the results
+   * @param similar True for the transactions matched by name
+   * @param compress True for a gzip file
+   * @return The path of the file
+   */
+  public static Path getPath(Path folder, boolean similar, boolean compress) {
+    String name = similar ? SIMILAR_FILE : DIFFERENT_FILE;
+    return folder.resolve(compress ? name + GZIP_EXTENSION : name);
+  }
+
+  /**
+   * Write the result of one source transaction
+   *
+   * @param similarity Similarity of the source transaction
+   * @throws IOException If the result couldn't be written
+   */
+  public void write(TransactionSimilarity similarity) throws IOException {
+    Writer writer = similarity.isSimilar() ? this.similar : this.different;
+    writer.write(similarity.isSimilar() ? "Similar" : "Different");
+    writer.write(',');
+    writer.write(Long.toString(similarity.getSourceId()));
+    writer.write(',');
+    writer.write(escape(similarity.getSourceName()));
+    writer.write(',');
+    writer.write(Integer.toString(similarity.getSourceSize()));
+    writer.write(',');
+    writer.write(Long.toString(similarity.getTargetId()));
+    writer.write(',');
+    writer.write(escape(similarity.getTargetName()));
+    writer.write(',');
+    writer.write(Integer.toString(similarity.getTargetSize()));
+    writer.write(',');
+    writer.write(Double.toString(similarity.getObjectSimilarity()));
+    writer.write(',');
+    writer.write(Double.toString(similarity.getDatabaseSimilarity()));
+    writer.write(',');
+    writer.write(Integer.toString(similarity.getRank()));
+    writer.write(System.lineSeparator());
+  }
+
+  @Override
+  public void close() throws IOException {
+    try (Writer s = similar; Writer d = different) {
+      s.flush();
+      d.flush();
+    }
+  }
+
+  /**
+   * Read the header of an existing result file
+   *
+   * @param path Path of the file
+   * @param compress True for a gzip file
+   * @return The first line of the file, null if the file is empty
+   * @throws IOException If the file couldn't be read
+   */
+  private static String readHeader(Path path, boolean compress) throws IOException {
+    InputStream in = Files.newInputStream(path);
+    try {
+      if (compress) in = new GZIPInputStream(in);
+      return new BufferedReader(new InputStreamReader(in, StandardCharsets.UTF_8)).readLine();
+    } finally {
+      in.close();
+    }
+  }
+
+  /**
+   * Open a result file in append mode, and write the header if the file is new
+   *
+   * @param path Path of the file
+   * @param compress True to compress the file. Appending to a gzip file adds a new member.
+   * @return The writer
+   * @throws IOException If the file couldn't be opened, or if its header doesn't match the
+   *     columns written
+   */
+  private static Writer open(Path path, boolean compress) throws IOException {
+    boolean isNew = !Files.exists(path) || Files.size(path) == 0;
+    if (!isNew && !HEADER.equals(readHeader(path, compress))) {
+      throw new IOException(
+          "The existing file has different columns. Move it away to start a new result file.");
+    }
+
+    OutputStream out =
+        Files.newOutputStream(path, StandardOpenOption.CREATE, StandardOpenOption.APPEND);
+    if (compress) out = new GZIPOutputStream(out, BUFFER_SIZE);
+
+    Writer writer =
+        new BufferedWriter(new OutputStreamWriter(out, StandardCharsets.UTF_8), BUFFER_SIZE);
+    if (isNew) {
+      writer.write(HEADER);
+      writer.write(System.lineSeparator());
+    }
+    return writer;
+  }
+
+  /**
+   * Constructor. Open the result files in the folder.
+   *
+   * @param folder Folder of the results
+   * @param compress True to write gzip files
+   * @throws FileIOException If the files couldn't be opened
+   */
+  public SimilarityResultWriter(Path folder, boolean compress) throws FileIOException {
+    Path similarPath = getPath(folder, true, compress);
+    Path differentPath = getPath(folder, false, compress);
+
+    try {
+      this.similar = open(similarPath, compress);
+    } catch (IOException e) {
+      throw new FileIOException(
+          "Failed to open the result file (" + e.getMessage() + ")",
+          similarPath.toString(),
+          e,
+          ERROR_CODE + "CONS01");
+    }
+
+    try {
+      this.different = open(differentPath, compress);
+    } catch (IOException e) {
+      try {
+        this.similar.close();
+      } catch (IOException ignored) {
+        // The first error is reported
+      }
+      throw new FileIOException(
+          "Failed to open the result file (" + e.getMessage() + ")",
+          differentPath.toString(),
+          e,
+          ERROR_CODE + "CONS02");
+    }
+  }
+}
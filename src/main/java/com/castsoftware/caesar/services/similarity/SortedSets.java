@@ -0,0 +1,275 @@
+package com.castsoftware.caesar.services.similarity;
+
+import java.util.Arrays;
+
+/**
+ * Set operations on sorted arrays of primitive ids. The arrays are merged in a single pass, so the
+ * cost is linear in their size instead of the quadratic <code>List.removeAll</code>. When one array
+ * is much larger than the other, the larger one is searched with a galloping search.
+ *
+ * <p>The sizes of intersection and difference follow the semantic of <code>List.removeAll</code> :
+ * the first array may contain duplicates, and each copy is counted. The coefficients expect sets,
+ * built with {@link #of(int...)} or {@link #of(long...)}.
+ */
+public class SortedSets {
+
+  // Ratio of sizes above which the larger array is searched instead of merged
+  private static final int GALLOP_RATIO = 32;
+
+  private SortedSets() {}
+
+  /**
+   * Build a sorted set from ids in any order
+   *
+   * @param ids Ids, can contain duplicates
+   * @return The sorted ids, without duplicates
+   */
+  public static int[] of(int... ids) {
+    int[] sorted = Arrays.copyOf(ids, ids.length);
+    Arrays.sort(sorted);
+    int size = 0;
+    for (int i = 0; i < sorted.length; i++) {
+      if (size == 0 || sorted[size - 1] != sorted[i]) sorted[size++] = sorted[i];
+    }
+    return size == sorted.length ? sorted : Arrays.copyOf(sorted, size);
+  }
+
+  /**
+   * Build a sorted set from ids in any order
+   *
+   * @param ids Ids, can contain duplicates
+   * @return The sorted ids, without duplicates
+   */
+  public static long[] of(long... ids) {
+    long[] sorted = Arrays.copyOf(ids, ids.length);
+    Arrays.sort(sorted);
+    int size = 0;
+    for (int i = 0; i < sorted.length; i++) {
+      if (size == 0 || sorted[size - 1] != sorted[i]) sorted[size++] = sorted[i];
+    }
+    return size == sorted.length ? sorted : Arrays.copyOf(sorted, size);
+  }
+
+  // Intersection and difference
+
+  /**
+   * Number of elements of a present in b
+   *
+   * @param a Sorted ids
+   * @param b Sorted ids
+   * @return The size of a ∩ b
+   */
+  public static int intersectionSize(int[] a, int[] b) {
+    int count = 0;
+    if (b.length > (long) a.length * GALLOP_RATIO) {
+      int j = 0;
+      for (int value : a) {
+        j = gallop(b, j, value);
+        if (j == b.length) break;
+        if (b[j] == value) count++;
+      }
+      return count;
+    }
+
+    int j = 0;
+    for (int value : a) {
+      while (j < b.length && b[j] < value) j++;
+      if (j == b.length) break;
+      if (b[j] == value) count++;
+    }
+    return count;
+  }
+
+  /**
+   * Number of elements of a present in b
+   *
+   * @param a Sorted ids
+   * @param b Sorted ids
+   * @return The size of a ∩ b
+   */
+  public static int intersectionSize(long[] a, long[] b) {
+    int count = 0;
+    if (b.length > (long) a.length * GALLOP_RATIO) {
+      int j = 0;
+      for (long value : a) {
+        j = gallop(b, j, value);
+        if (j == b.length) break;
+        if (b[j] == value) count++;
+      }
+      return count;
+    }
+
+    int j = 0;
+    for (long value : a) {
+      while (j < b.length && b[j] < value) j++;
+      if (j == b.length) break;
+      if (b[j] == value) count++;
+    }
+    return count;
+  }
+
+  /**
+   * Number of elements of a absent from b
+   *
+   * @param a Sorted ids
+   * @param b Sorted ids
+   * @return The size of a \ b
+   */
+  public static int differenceSize(int[] a, int[] b) {
+    return a.length - intersectionSize(a, b);
+  }
+
+  /**
+   * Number of elements of a absent from b
+   *
+   * @param a Sorted ids
+   * @param b Sorted ids
+   * @return The size of a \ b
+   */
+  public static int differenceSize(long[] a, long[] b) {
+    return a.length - intersectionSize(a, b);
+  }
+
+  /**
+   * Elements of a present in b
+   *
+   * @param a Sorted ids
+   * @param b Sorted ids
+   * @return The sorted ids of a ∩ b
+   */
+  public static int[] intersection(int[] a, int[] b) {
+    int[] result = new int[Math.min(a.length, b.length)];
+    int size = 0;
+    int i = 0, j = 0;
+    while (i < a.length && j < b.length) {
+      if (a[i] < b[j]) i++;
+      else if (a[i] > b[j]) j++;
+      else {
+        if (size == 0 || result[size - 1] != a[i]) result[size++] = a[i];
+        i++;
+      }
+    }
+    return Arrays.copyOf(result, size);
+  }
+
+  /**
+   * Elements of a absent from b
+   *
+   * @param a Sorted ids
+   * @param b Sorted ids
+   * @return The sorted ids of a \ b
+   */
+  public static int[] difference(int[] a, int[] b) {
+    int[] result = new int[a.length];
+    int size = 0;
+    int j = 0;
+    for (int value : a) {
+      while (j < b.length && b[j] < value) j++;
+      if (j == b.length || b[j] != value) result[size++] = value;
+    }
+    return Arrays.copyOf(result, size);
+  }
+
+  // Coefficients
+
+  /**
+   * Jaccard index : |a ∩ b| / |a ∪ b|
+   *
+   * @param a Sorted set
+   * @param b Sorted set
+   * @return The coefficient, between 0 and 1. Two empty sets are identical.
+   */
+  public static double jaccard(int[] a, int[] b) {
+    if (a.length == 0 && b.length == 0) return 1.0;
+    int shared = intersectionSize(a, b);
+    return (double) shared / (a.length + b.length - shared);
+  }
+
+  /**
+   * Containment of a in b : |a ∩ b| / |a|
+   *
+   * @param a Sorted set
+   * @param b Sorted set
+   * @return The coefficient, between 0 and 1. An empty set is contained in any set.
+   */
+  public static double containment(int[] a, int[] b) {
+    if (a.length == 0) return 1.0;
+    return (double) intersectionSize(a, b) / a.length;
+  }
+
+  /**
+   * Containment of a in b : |a ∩ b| / |a|
+   *
+   * @param a Sorted set
+   * @param b Sorted set
+   * @return The coefficient, between 0 and 1. An empty set is contained in any set.
+   */
+  public static double containment(long[] a, long[] b) {
+    if (a.length == 0) return 1.0;
+    return (double) intersectionSize(a, b) / a.length;
+  }
+
+  /**
+   * Overlap coefficient : |a ∩ b| / min(|a|, |b|)
+   *
+   * @param a Sorted set
+   * @param b Sorted set
+   * @return The coefficient, between 0 and 1. 0 if one of the sets is empty.
+   */
+  public static double overlap(int[] a, int[] b) {
+    if (a.length == 0 || b.length == 0) return 0.0;
+    int[] small = a.length <= b.length ? a : b;
+    int[] large = small == a ? b : a;
+    return (double) intersectionSize(small, large) / small.length;
+  }
+
+  // Search
+
+  /**
+   * Find the first position of a sorted array, starting at from, with a value greater or equal to
+   * the value. The gap is doubled until it is passed, then binary searched.
+   *
+   * @return The position, or the length of the array if all the values are smaller
+   */
+  private static int gallop(int[] array, int from, int value) {
+    int step = 1;
+    int hi = from;
+    while (hi < array.length && array[hi] < value) {
+      from = hi + 1;
+      hi += step;
+      step <<= 1;
+    }
+    hi = Math.min(hi, array.length);
+
+    while (from < hi) {
+      int mid = (from + hi) >>> 1;
+      if (array[mid] < value) from = mid + 1;
+      else hi = mid;
+    }
+    return from;
+  }
+
+  /**
+   * Find the first position of a sorted array, starting at from, with a value greater or equal to
+   * the value. The gap is doubled until it is passed, then binary searched.
+   *
+   * @return The position, or the length of the array if all the values are smaller
+   */
+  private static int gallop(long[] array, int from, long value) {
+    int step = 1;
+    int hi = from;
+    while (hi < array.length && array[hi] < value) {
+      from = hi + 1;
+      hi += step;
+      step <<= 1;
+    }
+    hi = Math.min(hi, array.length);
+
+    while (from < hi) {
+      int mid = (from + hi) >>> 1;
+      if (array[mid] < value) from = mid + 1;
+      else hi = mid;
+    }
+    return from;
+  }
+}
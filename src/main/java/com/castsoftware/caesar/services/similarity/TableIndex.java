@@ -0,0 +1,83 @@
+package com.castsoftware.caesar.services.similarity;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Index of the database tables of an application, with the transactions touching each table.
+ * Tables and transactions are identified by integer keys, shared by the applications compared, so
+ * the indexes of two applications can be joined on their keys.
+ */
+public class TableIndex {
+
+  private final Map<Integer, int[]> transactions = new HashMap<>();
+  private final Map<Integer, Integer> sizes = new HashMap<>();
+  private boolean built = false;
+
+  /**
+   * Add the tables of a transaction
+   *
+   * @param transaction Key of the transaction
+   * @param tables Keys of the tables used by the transaction
+   */
+  public void add(int transaction, int[] tables) {
+    if (built) throw new IllegalStateException("The index is already built.");
+
+    for (int table : tables) {
+      int size = sizes.getOrDefault(table, 0);
+      int[] list = transactions.get(table);
+      if (list == null) list = new int[4];
+      else if (size == list.length) list = Arrays.copyOf(list, size * 2);
+
+      list[size] = transaction;
+      transactions.put(table, list);
+      sizes.put(table, size + 1);
+    }
+  }
+
+  /**
+   * Sort the transactions of each table, and remove the duplicates
+   *
+   * @return The index
+   */
+  public TableIndex build() {
+    if (built) return this;
+
+    for (Map.Entry<Integer, int[]> en : transactions.entrySet()) {
+      int size = sizes.get(en.getKey());
+      en.setValue(SortedSets.of(Arrays.copyOf(en.getValue(), size)));
+    }
+    sizes.clear();
+    built = true;
+    return this;
+  }
+
+  /** @return The sorted keys of the tables */
+  public int[] getTables() {
+    return transactions.keySet().stream().mapToInt(Integer::intValue).sorted().toArray();
+  }
+
+  /**
+   * @param table Key of the table
+   * @return True if the table is used by a transaction of the application
+   */
+  public boolean contains(int table) {
+    return transactions.containsKey(table);
+  }
+
+  /**
+   * Transactions touching a table
+   *
+   * @param table Key of the table
+   * @return The sorted keys of the transactions, empty if the table isn't used
+   */
+  public int[] getTransactions(int table) {
+    if (!built) throw new IllegalStateException("The index must be built first.");
+    return transactions.getOrDefault(table, new int[0]);
+  }
+
+  public int getNumTables() {
+    return transactions.size();
+  }
+}
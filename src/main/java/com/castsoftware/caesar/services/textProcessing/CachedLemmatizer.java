@@ -0,0 +1,47 @@
+package com.castsoftware.caesar.services.textProcessing;
+
+/**
+ * Lemmatizer serving the words already met from a {@link LemmaCache}, and delegating the others.
+ */
+public class CachedLemmatizer implements Lemmatizer {
+
+	private final Lemmatizer delegate;
+	private final LemmaCache cache;
+
+	@Override
+	public String lemmatize(String word) {
+		return cache.get(word, delegate::lemmatize);
+	}
+
+	/**
+	 * Seed the cache with the lemmas of a list of words, for example the most frequent words of an application
+	 * @param words Words to lemmatize
+	 */
+	public void preload(Iterable<String> words) {
+		for (String word : words) {
+			lemmatize(word);
+		}
+	}
+
+	/**
+	 * Get the lemma cache, and its statistics
+	 * @return The cache
+	 */
+	public LemmaCache getCache() {
+		return cache;
+	}
+
+	public Lemmatizer getDelegate() {
+		return delegate;
+	}
+
+	/**
+	 * Constructor
+	 * @param delegate Lemmatizer called on cache misses
+	 * @param capacity Maximum number of lemmas kept
+	 */
+	public CachedLemmatizer(Lemmatizer delegate, int capacity) {
+		this.delegate = delegate;
+		this.cache = new LemmaCache(capacity);
+	}
+}
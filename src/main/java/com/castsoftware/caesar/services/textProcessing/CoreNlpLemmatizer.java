@@ -0,0 +1,41 @@
+package com.castsoftware.caesar.services.textProcessing;
+
+import edu.stanford.nlp.ling.CoreLabel;
+import edu.stanford.nlp.pipeline.CoreDocument;
+import edu.stanford.nlp.pipeline.StanfordCoreNLP;
+
+import java.util.Properties;
+
+/**
+ * Lemmatizer running the Stanford CoreNLP pipeline (tokenize, ssplit, pos, lemma). Accurate, but
+ * loads the POS tagger models in the heap and takes several seconds to start.
+ */
+public class CoreNlpLemmatizer implements Lemmatizer {
+	private final StanfordCoreNLP pipeline;
+
+	public CoreNlpLemmatizer() {
+		Properties props;
+		props = new Properties();
+		props.put("annotators", "tokenize, ssplit, pos, lemma");
+
+		this.pipeline = new StanfordCoreNLP(props);
+	}
+
+	/**
+	 * Lemmatize the word found
+	 * @param word Word to change
+	 * @return The lemma
+	 */
+	@Override
+	public String lemmatize(String word)
+	{
+		// create a document object
+		CoreDocument document = pipeline.processToCoreDocument(word);
+		// display tokens
+		for (CoreLabel tok : document.tokens()) {
+			return tok.lemma();
+		}
+
+		return word; // Nothing found
+	}
+}
@@ -0,0 +1,110 @@
+package com.castsoftware.caesar.services.textProcessing;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Function;
+
+/**
+ * Bounded, thread-safe cache of lemmas. The least recently used words are evicted once the capacity
+ * is reached. Hits and misses are counted to monitor the efficiency of the cache.
+ */
+public class LemmaCache {
+
+	private final int capacity;
+	private final Map<String, String> lemmas;
+
+	private final AtomicLong hits = new AtomicLong(0);
+	private final AtomicLong misses = new AtomicLong(0);
+
+	/**
+	 * Get the lemma of a word, computing it on a miss
+	 * @param word Word to lemmatize
+	 * @param compute Function computing the lemma, only called if the word is not cached
+	 * @return The lemma
+	 */
+	public String get(String word, Function<String, String> compute) {
+		String lemma;
+		synchronized (lemmas) {
+			lemma = lemmas.get(word);
+		}
+
+		if (lemma != null) {
+			hits.incrementAndGet();
+			return lemma;
+		}
+
+		// Computed outside the lock, two threads may compute the same word
+		misses.incrementAndGet();
+		lemma = compute.apply(word);
+		put(word, lemma);
+		return lemma;
+	}
+
+	/**
+	 * Insert a lemma in the cache
+	 * @param word Word
+	 * @param lemma Lemma of the word
+	 */
+	public void put(String word, String lemma) {
+		synchronized (lemmas) {
+			lemmas.put(word, lemma);
+		}
+	}
+
+	public int size() {
+		synchronized (lemmas) {
+			return lemmas.size();
+		}
+	}
+
+	public int getCapacity() {
+		return capacity;
+	}
+
+	public long getHits() {
+		return hits.get();
+	}
+
+	public long getMisses() {
+		return misses.get();
+	}
+
+	/**
+	 * Ratio of the requests served by the cache
+	 * @return The hit ratio between 0 and 1
+	 */
+	public double getHitRatio() {
+		long total = hits.get() + misses.get();
+		return total == 0 ? 0.0 : (double) hits.get() / total;
+	}
+
+	/** Empty the cache and reset the statistics */
+	public void clear() {
+		synchronized (lemmas) {
+			lemmas.clear();
+		}
+		hits.set(0);
+		misses.set(0);
+	}
+
+	@Override
+	public String toString() {
+		return String.format("Lemma cache : %d/%d entries, %d hits, %d misses (%.1f%% hit ratio)",
+				size(), capacity, getHits(), getMisses(), getHitRatio() * 100);
+	}
+
+	/**
+	 * Constructor
+	 * @param capacity Maximum number of lemmas kept
+	 */
+	public LemmaCache(int capacity) {
+		this.capacity = Math.max(1, capacity);
+		this.lemmas = new LinkedHashMap<>(16, 0.75f, true) {
+			@Override
+			protected boolean removeEldestEntry(Map.Entry<String, String> eldest) {
+				return size() > LemmaCache.this.capacity;
+			}
+		};
+	}
+}
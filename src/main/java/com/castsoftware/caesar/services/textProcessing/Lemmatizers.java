@@ -0,0 +1,112 @@
+package com.castsoftware.caesar.services.textProcessing;
+
+import com.castsoftware.caesar.configuration.Configuration;
+import org.neo4j.logging.Log;
+
+import java.util.EnumMap;
+import java.util.LinkedHashSet;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Shared lemmatizers. Each mode is instantiated once, on first use, behind a lemma cache.
+ */
+public class Lemmatizers {
+
+	private static final int DEFAULT_CACHE_SIZE = 50000;
+
+	private static final Map<Mode, CachedLemmatizer> INSTANCES = new EnumMap<>(Mode.class);
+
+	// Configuration problems not logged yet, a lemmatizer can be requested without a log
+	private static final Set<String> PENDING_WARNINGS = new LinkedHashSet<>();
+
+	/** Available lemmatizers */
+	public enum Mode {
+		RULE_BASED,
+		CORE_NLP
+	}
+
+	/**
+	 * Get the lemmatizer of a mode
+	 * @param mode Mode of the lemmatizer
+	 * @return The lemmatizer
+	 */
+	public static synchronized CachedLemmatizer get(Mode mode) {
+		return INSTANCES.computeIfAbsent(mode, m -> new CachedLemmatizer(create(m), getCacheSize()));
+	}
+
+	/**
+	 * Get the lemmatizer declared in the configuration
+	 * @param mode Name of the mode (case insensitive). Unknown or null values use the rule based lemmatizer
+	 * @return The lemmatizer
+	 */
+	public static CachedLemmatizer get(String mode) {
+		return get(parseMode(mode));
+	}
+
+	/**
+	 * Get the default lemmatizer
+	 * @return The rule based lemmatizer
+	 */
+	public static CachedLemmatizer getDefault() {
+		return get(Mode.RULE_BASED);
+	}
+
+	/**
+	 * Log the configuration problems met since the last report
+	 * @param log Log of the procedure
+	 */
+	public static synchronized void reportWarnings(Log log) {
+		for (String warning : PENDING_WARNINGS) {
+			log.warn(warning);
+		}
+		PENDING_WARNINGS.clear();
+	}
+
+	/**
+	 * Convert a name to a mode
+	 * @param mode Name of the mode (case insensitive)
+	 * @return The mode, or the rule based mode if the name is unknown
+	 */
+	public static Mode parseMode(String mode) {
+		if (mode == null) return Mode.RULE_BASED;
+		try {
+			return Mode.valueOf(mode.trim().toUpperCase());
+		} catch (IllegalArgumentException e) {
+			addWarning(String.format("Unknown lemmatizer '%s', using %s.", mode, Mode.RULE_BASED));
+			return Mode.RULE_BASED;
+		}
+	}
+
+	private static Lemmatizer create(Mode mode) {
+		switch (mode) {
+			case CORE_NLP:
+				return new CoreNlpLemmatizer();
+			case RULE_BASED:
+			default:
+				return new RuleBasedLemmatizer();
+		}
+	}
+
+	/**
+	 * Get the size of the lemma cache from the configuration
+	 * @return The size declared by 'lemmatizer.cache.size', or the default size
+	 */
+	private static int getCacheSize() {
+		Object size = Configuration.getAsObject("lemmatizer.cache.size");
+		if (size == null) return DEFAULT_CACHE_SIZE;
+
+		try {
+			return Integer.parseInt(size.toString().trim());
+		} catch (NumberFormatException e) {
+			addWarning(String.format("Invalid lemma cache size '%s', using %d.", size, DEFAULT_CACHE_SIZE));
+			return DEFAULT_CACHE_SIZE;
+		}
+	}
+
+	private static synchronized void addWarning(String warning) {
+		PENDING_WARNINGS.add(warning);
+	}
+
+	private Lemmatizers() {}
+}
@@ -0,0 +1,220 @@
+package com.castsoftware.caesar.services.textProcessing;
+
+import com.castsoftware.caesar.dictionary.Dictionary;
+
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Lightweight lemmatizer for identifier-style words. Irregular forms are read from an exception
+ * table, then the plural and verb suffixes (-s, -es, -ies, -ed, -ied, -ing) are removed. A candidate
+ * stem is only accepted if it is a word of the {@link Dictionary}, otherwise the word is kept as is.
+ *
+ * The case of the word is preserved: "Customers" becomes "Customer", "CHILDREN" becomes "CHILD".
+ */
+public class RuleBasedLemmatizer implements Lemmatizer {
+
+	private static final int MIN_STEM_LENGTH = 2;
+
+	private static final Map<String, String> EXCEPTIONS = new HashMap<>();
+
+	static {
+		// Irregular verbs
+		String[][] irregulars = {
+				{"am", "be"}, {"is", "be"}, {"are", "be"}, {"was", "be"}, {"were", "be"}, {"been", "be"},
+				{"has", "have"}, {"had", "have"}, {"does", "do"}, {"did", "do"}, {"done", "do"},
+				{"got", "get"}, {"gotten", "get"}, {"sent", "send"}, {"made", "make"}, {"built", "build"},
+				{"found", "find"}, {"paid", "pay"}, {"sold", "sell"}, {"bought", "buy"}, {"kept", "keep"},
+				{"left", "leave"}, {"lost", "lose"}, {"ran", "run"}, {"began", "begin"}, {"begun", "begin"},
+				{"chose", "choose"}, {"chosen", "choose"}, {"wrote", "write"}, {"written", "write"},
+				{"read", "read"}, {"held", "hold"}, {"led", "lead"}, {"met", "meet"}, {"saw", "see"},
+				{"seen", "see"}, {"took", "take"}, {"taken", "take"}, {"gave", "give"}, {"given", "give"},
+				{"went", "go"}, {"gone", "go"}, {"knew", "know"}, {"known", "know"}, {"told", "tell"},
+				{"thought", "think"}, {"brought", "bring"}, {"caught", "catch"}, {"fed", "feed"},
+				{"bound", "bind"}, {"hidden", "hide"}, {"shown", "show"}, {"drawn", "draw"},
+				{"froze", "freeze"}, {"frozen", "freeze"}, {"spent", "spend"}, {"split", "split"},
+				{"set", "set"}, {"put", "put"}, {"reset", "reset"}, {"cut", "cut"}, {"shut", "shut"},
+		};
+		// Irregular plurals
+		String[][] plurals = {
+				{"children", "child"}, {"men", "man"}, {"women", "woman"}, {"people", "person"},
+				{"feet", "foot"}, {"teeth", "tooth"}, {"mice", "mouse"}, {"indices", "index"},
+				{"matrices", "matrix"}, {"vertices", "vertex"}, {"analyses", "analysis"},
+				{"criteria", "criterion"}, {"phenomena", "phenomenon"}, {"leaves", "leaf"},
+				{"lives", "life"}, {"wives", "wife"}, {"knives", "knife"}, {"halves", "half"},
+				{"shelves", "shelf"}, {"selves", "self"},
+		};
+		// Words looking inflected, but already lemmas
+		String[] invariants = {
+				"during", "nothing", "something", "anything", "everything", "thing", "string", "spring",
+				"ring", "king", "morning", "evening", "ceiling", "wedding", "pudding", "bring", "sing",
+				"swing", "sting", "wing", "ping", "news", "series", "species", "always", "perhaps",
+				"bus", "gas", "yes", "this", "its", "his", "less", "unless", "plus", "minus", "bonus",
+				"status", "canvas", "alias", "atlas", "lens", "focus", "campus", "virus", "corpus",
+				"speed", "need", "seed", "feed", "proceed", "succeed", "exceed", "embed", "bed", "red",
+				"shed", "hundred", "sacred", "naked", "wicked",
+		};
+
+		for (String[] irregular : irregulars) EXCEPTIONS.put(irregular[0], irregular[1]);
+		for (String[] plural : plurals) EXCEPTIONS.put(plural[0], plural[1]);
+		for (String invariant : invariants) EXCEPTIONS.put(invariant, invariant);
+	}
+
+	private final Dictionary dictionary;
+
+	@Override
+	public String lemmatize(String word) {
+		if (word == null || word.length() <= MIN_STEM_LENGTH) return word;
+		String lower = word.toLowerCase();
+
+		String exception = EXCEPTIONS.get(lower);
+		if (exception != null) return matchCase(exception, word);
+
+		String lemma;
+		if (lower.endsWith("s")) lemma = lemmatizePlural(word, lower);
+		else if (lower.endsWith("ing")) lemma = lemmatizeSuffix(word, lower, 3);
+		else if (lower.endsWith("ed")) lemma = lemmatizePast(word, lower);
+		else lemma = null;
+
+		return lemma != null ? lemma : word;
+	}
+
+	/**
+	 * Remove the plural (or third person) suffix of a word
+	 * @param word Original word
+	 * @param lower Word in lower case
+	 * @return The lemma, or null if none was found
+	 */
+	private String lemmatizePlural(String word, String lower) {
+		// "ss", "us" and "is" are not plural suffixes : class, status, analysis
+		if (lower.endsWith("ss") || lower.endsWith("us") || lower.endsWith("is")) return null;
+
+		int length = lower.length();
+		if (lower.endsWith("ies") && length > 4) {
+			String lemma = accept(word, length - 3, "y");
+			if (lemma != null) return lemma;
+		}
+
+		if (lower.endsWith("es")) {
+			// Sibilant endings take "es" : boxes, classes, branches, wishes
+			char before = lower.charAt(length - 3);
+			boolean sibilant = before == 's' || before == 'x' || before == 'z'
+					|| lower.endsWith("ches") || lower.endsWith("shes");
+			String first = sibilant ? accept(word, length - 2, "") : accept(word, length - 1, "");
+			if (first != null) return first;
+			return sibilant ? accept(word, length - 1, "") : accept(word, length - 2, "");
+		}
+
+		return accept(word, length - 1, "");
+	}
+
+	/**
+	 * Remove the past suffix of a word
+	 * @param word Original word
+	 * @param lower Word in lower case
+	 * @return The lemma, or null if none was found
+	 */
+	private String lemmatizePast(String word, String lower) {
+		int length = lower.length();
+		if (lower.endsWith("ied") && length > 4) {
+			String lemma = accept(word, length - 3, "y");
+			if (lemma != null) return lemma;
+		}
+		return lemmatizeSuffix(word, lower, 2);
+	}
+
+	/**
+	 * Remove a verb suffix ("ed" or "ing"), restoring the final "e" or removing the doubled consonant
+	 * if needed : updated to update, running to run, listed to list
+	 * @param word Original word
+	 * @param lower Word in lower case
+	 * @param suffixLength Length of the suffix to remove
+	 * @return The lemma, or null if none was found
+	 */
+	private String lemmatizeSuffix(String word, String lower, int suffixLength) {
+		int stemLength = lower.length() - suffixLength;
+		if (stemLength < MIN_STEM_LENGTH) return null;
+
+		// Very short stems only lost an "e" : used, aged
+		if (stemLength == MIN_STEM_LENGTH) return accept(word, stemLength, "e");
+
+		// Doubled consonant : running, stopped
+		char last = lower.charAt(stemLength - 1);
+		if (last == lower.charAt(stemLength - 2) && isConsonant(last) && last != 'l' && last != 's' && last != 'z') {
+			String lemma = accept(word, stemLength - 1, "");
+			if (lemma != null) return lemma;
+		}
+
+		// Some stems usually lost an "e" : updat, creat, chang, mak
+		String lemma;
+		if (expectsFinalE(lower, stemLength)) {
+			lemma = accept(word, stemLength, "e");
+			if (lemma == null) lemma = accept(word, stemLength, "");
+		} else {
+			lemma = accept(word, stemLength, "");
+			if (lemma == null) lemma = accept(word, stemLength, "e");
+		}
+		return lemma;
+	}
+
+	/**
+	 * Build a candidate lemma and check it against the dictionary
+	 * @param word Original word
+	 * @param stemLength Number of characters of the word kept
+	 * @param suffix Suffix appended to the stem
+	 * @return The candidate if it is a word of the dictionary, null otherwise
+	 */
+	private String accept(String word, int stemLength, String suffix) {
+		if (stemLength < MIN_STEM_LENGTH) return null;
+		String candidate = word.substring(0, stemLength) + (isUpperCase(word) ? suffix.toUpperCase() : suffix);
+		return dictionary.search(candidate.toLowerCase()) ? candidate : null;
+	}
+
+	/**
+	 * Apply the case of a word to a lemma in lower case
+	 * @param lemma Lemma in lower case
+	 * @param word Original word
+	 * @return The lemma in upper case if the word is in upper case, capitalized if the word is capitalized
+	 */
+	private static String matchCase(String lemma, String word) {
+		if (isUpperCase(word)) return lemma.toUpperCase();
+		if (Character.isUpperCase(word.charAt(0))) return Character.toUpperCase(lemma.charAt(0)) + lemma.substring(1);
+		return lemma;
+	}
+
+	private static boolean isUpperCase(String word) {
+		return word.equals(word.toUpperCase());
+	}
+
+	private static boolean isVowel(char c) {
+		return c == 'a' || c == 'e' || c == 'i' || c == 'o' || c == 'u';
+	}
+
+	private static boolean isConsonant(char c) {
+		return c >= 'a' && c <= 'z' && !isVowel(c);
+	}
+
+	/**
+	 * Check if a stem is likely to have lost a final "e" : it ends with a consonant, a vowel and a
+	 * consonant (not w, x or y), or with one of the endings never found at the end of a lemma (at, bl,
+	 * iz, c, g, u, v)
+	 * @param lower Word in lower case
+	 * @param stemLength Length of the stem
+	 * @return True if the stem + "e" should be tried first
+	 */
+	private static boolean expectsFinalE(String lower, int stemLength) {
+		char c2 = lower.charAt(stemLength - 1);
+		char v = lower.charAt(stemLength - 2);
+		if (c2 == 'c' || c2 == 'g' || c2 == 'u' || c2 == 'v') return true;
+		if ((v == 'a' && c2 == 't') || (v == 'b' && c2 == 'l') || (v == 'i' && c2 == 'z')) return true;
+
+		if (stemLength < 3) return false;
+		char c1 = lower.charAt(stemLength - 3);
+		return isConsonant(c1) && (isVowel(v) || v == 'y') && isConsonant(c2)
+				&& c2 != 'w' && c2 != 'x' && c2 != 'y';
+	}
+
+	public RuleBasedLemmatizer() {
+		this.dictionary = Dictionary.getInstance();
+	}
+}
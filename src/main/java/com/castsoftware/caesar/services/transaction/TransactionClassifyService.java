@@ -4,11 +4,13 @@ import com.castsoftware.caesar.dictionary.Dictionary;
 import com.castsoftware.caesar.entities.transactions.ClusterTransaction;
 import com.castsoftware.caesar.entities.transactions.Transaction;
 import com.castsoftware.caesar.services.textProcessing.Lemmatizer;
+import com.castsoftware.caesar.services.textProcessing.Lemmatizers;
 
 import java.util.*;
 
 public class TransactionClassifyService {
 	private Dictionary dictionary;
+	private Lemmatizer lemmatizer;
 
 	/**
 	 * Sanitize the string
@@ -31,26 +33,23 @@ public class TransactionClassifyService {
 		String name = tn.getName().toLowerCase();
 		name = removeNonAlphanumeric(name);
 
-		String substring;
-
+		int foundLength;
 		String foundPrefix;
 		String nextFoundPrefix;
 
 
 		// Parse substring
 		for(int i = 0; i < name.length(); i++) {
-			foundPrefix  = null;
-
-			substring = name.substring(i);
-			foundPrefix = findLongestWord(substring);
+			foundLength = findLongestWordLength(name, i);
 
 			// If not found ?? skip
-			if(foundPrefix == null) continue;
+			if(foundLength == 0) continue;
+			foundPrefix = name.substring(i, i + foundLength);
 			nextFoundPrefix = findMasking(name, i);
 			if(nextFoundPrefix != null) categories.add(nextFoundPrefix);
 
 			// If found truncate the string found
-			name = name.substring(foundPrefix.length() -1);
+			name = name.substring(foundLength -1);
 			categories.add(foundPrefix);
 		}
 
@@ -81,7 +80,6 @@ public class TransactionClassifyService {
 	 * @return The list of categories found
 	 */
 	public List<String> classifyTransaction(Transaction tn) {
-		Lemmatizer lemmatizer = Lemmatizer.getInstance();
 		String name = tn.getName();
 		List<String> categories = new ArrayList<>();
 
@@ -91,7 +89,7 @@ public class TransactionClassifyService {
 			categories =  classifyPlainTransaction(tn);
 		}
 
-		categories.forEach(lemmatizer::lemmatize);
+		categories.replaceAll(lemmatizer::lemmatize);
 		return categories;
 	}
 
@@ -105,14 +103,14 @@ public class TransactionClassifyService {
 		String masked = null;
 
 		// Go back
-		String foundPrefix;
-		String substring = "";
+		int foundLength;
+		String substring;
 		for(int y = position; y >= name.length() -1; y --) {
-			substring = name.substring(y, name.length() - 1);
-			foundPrefix = findLongestWord(substring);
+			substring = name.substring(0, name.length() - 1);
+			foundLength = findLongestWordLength(substring, y);
 
-			if(foundPrefix != null) {
-				return foundPrefix;
+			if(foundLength > 0) {
+				return substring.substring(y, y + foundLength);
 			}
 		}
 
@@ -125,27 +123,33 @@ public class TransactionClassifyService {
 	 * @return The longest word found or null
 	 */
 	public String findLongestWord(String text) {
-		// Search property
-		StringBuilder longestString = new StringBuilder();
-		String foundWord = null;
-
-		// Loop on the text
-		for(int i = 0; i < text.length(); i++) {
-			longestString.append(text.charAt(i)); // Longest word
-
-			// Search string in dict
-			if(this.dictionary.search(longestString.toString())) {
-				foundWord = longestString.toString();
-			}
-		}
-		return foundWord;
+		int length = findLongestWordLength(text, 0);
+		return length == 0 ? null : text.substring(0, length);
 	}
 
+	/**
+	 * Search the longest word of the dictionary starting at a position, without extracting substrings
+	 * @param text Text to search
+	 * @param from Start position in the text
+	 * @return The length of the longest word found or 0
+	 */
+	public int findLongestWordLength(String text, int from) {
+		return this.dictionary.longestPrefix(text, from);
+	}
 
 
 
 	public TransactionClassifyService() {
+		this(Lemmatizers.getDefault());
+	}
+
+	/**
+	 * Constructor
+	 * @param lemmatizer Lemmatizer applied on the categories found
+	 */
+	public TransactionClassifyService(Lemmatizer lemmatizer) {
 		this.dictionary = Dictionary.getInstance();
+		this.lemmatizer = lemmatizer;
 	}
 
 